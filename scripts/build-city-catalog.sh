@@ -0,0 +1,20 @@
+#!/usr/bin/env bash
+# Builds the city catalog from the OpenWeatherMap bulk city list (about 200k cities) using jq.
+#
+# The output is the format read by CityCatalog, one "id<TAB>name<TAB>country" line per city, gzip
+# compressed. Mount it into the container and point the service at it:
+#
+#   scripts/build-city-catalog.sh data/cities.tsv.gz
+#   openweathermap.api.catalog.file: file:data/cities.tsv.gz
+#   openweathermap.api.catalog.enforce: true
+set -euo pipefail
+
+OUTPUT="${1:-cities.tsv.gz}"
+SOURCE="${CITY_LIST_URL:-https://bulk.openweathermap.org/sample/city.list.json.gz}"
+
+curl -sSfL "${SOURCE}" \
+  | gunzip \
+  | jq -r '.[] | select(.name != "" and .country != "") | [.id, .name, .country] | @tsv' \
+  | gzip -9 > "${OUTPUT}"
+
+echo "Wrote $(gunzip -c "${OUTPUT}" | wc -l) cities to ${OUTPUT}"
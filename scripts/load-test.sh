@@ -0,0 +1,34 @@
+#!/usr/bin/env bash
+# Load test for GET /api/weather using wrk (https://github.com/wg/wrk).
+#
+# Prints requests per second and latency from wrk, then the live and peak JVM thread counts the
+# application reports through the actuator. Run it against two builds on the same machine, e.g.
+# the current tree and a checkout of the servlet-based version, to compare the stacks:
+#
+#   ./gradlew bootJar && java -jar build/libs/*.jar &
+#   scripts/load-test.sh http://localhost:8081 30s 256
+#
+# The first request warms the location into the cache, so the run measures the serving path.
+set -euo pipefail
+
+BASE_URL="${1:-http://localhost:8081}"
+DURATION="${2:-30s}"
+CONNECTIONS="${3:-256}"
+THREADS="${WRK_THREADS:-4}"
+API_KEY="${API_KEY:-aed58581a199105e32c677448ce408ec}"
+URL="${BASE_URL}/api/weather?city=London&country=gb&apiKey=${API_KEY}"
+
+command -v wrk >/dev/null || { echo "wrk is required" >&2; exit 1; }
+
+metric() {
+  curl -fsS "${BASE_URL}/actuator/metrics/$1" | sed -E 's/.*"value":([0-9.E]+).*/\1/'
+}
+
+curl -fsS -o /dev/null "$URL" || echo "warm-up request failed, continuing" >&2
+
+echo "== wrk -t${THREADS} -c${CONNECTIONS} -d${DURATION} ${URL}"
+wrk -t"$THREADS" -c"$CONNECTIONS" -d"$DURATION" --latency "$URL"
+
+echo "== JVM threads"
+echo "live: $(metric jvm.threads.live)"
+echo "peak: $(metric jvm.threads.peak)"
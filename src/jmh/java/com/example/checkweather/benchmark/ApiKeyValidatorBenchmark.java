@@ -0,0 +1,48 @@
+package com.example.checkweather.benchmark;
+
+import com.example.checkweather.configuration.ApiKeyConfig;
+import com.example.checkweather.exception.InvalidApiKeyException;
+import com.example.checkweather.utils.ApiKeyValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApiKeyValidatorBenchmark {
+
+    @Param({"5", "1000"})
+    public int keyCount;
+
+    private ApiKeyValidator apiKeyValidator;
+    private String[] validKeys;
+
+    @Setup
+    public void setUp() {
+        validKeys = BenchmarkData.apiKeys(keyCount);
+        ApiKeyConfig apiKeyConfig = new ApiKeyConfig();
+        apiKeyConfig.setKeys(Arrays.asList(validKeys));
+        apiKeyValidator = new ApiKeyValidator(apiKeyConfig);
+    }
+
+    @Benchmark
+    public void validKey() {
+        apiKeyValidator.validate(validKeys[ThreadLocalRandom.current().nextInt(validKeys.length)]);
+    }
+
+    @Benchmark
+    public boolean invalidKey() {
+        try {
+            apiKeyValidator.validate("ffffffffffffffffffffffffffffffff");
+            return true;
+        } catch (InvalidApiKeyException e) {
+            return false;
+        }
+    }
+}
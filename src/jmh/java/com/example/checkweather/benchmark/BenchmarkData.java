@@ -0,0 +1,49 @@
+package com.example.checkweather.benchmark;
+
+/**
+ * Synthetic inputs shared by the benchmarks, generated deterministically so runs are comparable.
+ */
+final class BenchmarkData {
+
+    static final String WEATHER_RESPONSE_JSON = """
+            {
+              "coord": { "lon": -0.1257, "lat": 51.5085 },
+              "weather": [
+                { "id": 500, "main": "Rain", "description": "light rain", "icon": "10d" },
+                { "id": 701, "main": "Mist", "description": "mist", "icon": "50d" }
+              ],
+              "base": "stations",
+              "main": { "temp": 285.62, "feels_like": 285.03, "temp_min": 284.26, "temp_max": 286.49,
+                        "pressure": 1009, "humidity": 82, "sea_level": 1009, "grnd_level": 1005 },
+              "visibility": 10000,
+              "wind": { "speed": 5.14, "deg": 240, "gust": 9.26 },
+              "rain": { "1h": 0.42 },
+              "clouds": { "all": 75 },
+              "dt": 1697528400,
+              "sys": { "type": 2, "id": 2075535, "country": "GB", "sunrise": 1697524166, "sunset": 1697561922 },
+              "timezone": 3600,
+              "id": 2643743,
+              "name": "London",
+              "cod": 200
+            }
+            """;
+
+    private BenchmarkData() {
+    }
+
+    static String[] apiKeys(int count) {
+        String[] keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = String.format("%032x", (long) i * 0x9E3779B97F4A7C15L);
+        }
+        return keys;
+    }
+
+    static String city(int index) {
+        return "city" + index;
+    }
+
+    static String country(int index) {
+        return "c" + (index % 250);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.checkweather.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the selected benchmarks once per thread count and writes one JSON result file per run,
+ * e.g. {@code results-threads-4.json}, so releases can be compared file by file.
+ * <p>
+ * System properties: {@code jmh.include} (regex, default all), {@code jmh.threads} (comma separated,
+ * default 1,4,16) and {@code jmh.resultDir} (default build/reports/jmh).
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String include = System.getProperty("jmh.include", "com\\.example\\.checkweather\\.benchmark\\..*");
+        String[] threadCounts = System.getProperty("jmh.threads", "1,4,16").split(",");
+        File resultDir = new File(System.getProperty("jmh.resultDir", "build/reports/jmh"));
+        resultDir.mkdirs();
+
+        for (String threadCount : threadCounts) {
+            int threads = Integer.parseInt(threadCount.trim());
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDir, "results-threads-" + threads + ".json").getPath());
+            new Runner(options.build()).run();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.checkweather.benchmark;
+
+import com.example.checkweather.actuator.WeatherMetrics;
+import com.example.checkweather.cache.CachedWeather;
+import com.example.checkweather.cache.CityCatalog;
+import com.example.checkweather.cache.HotLocationTracker;
+import com.example.checkweather.cache.LocationKeys;
+import com.example.checkweather.cache.NegativeCache;
+import com.example.checkweather.cache.WeatherCache;
+import com.example.checkweather.configuration.CacheConfig;
+import com.example.checkweather.configuration.CatalogConfig;
+import com.example.checkweather.configuration.LocationConfig;
+import com.example.checkweather.configuration.NegativeCacheConfig;
+import com.example.checkweather.configuration.ResilienceConfig;
+import com.example.checkweather.configuration.StoreConfig;
+import com.example.checkweather.configuration.UpstreamKeyConfig;
+import com.example.checkweather.configuration.WarmupConfig;
+import com.example.checkweather.service.CheckWeatherService;
+import com.example.checkweather.service.UpstreamResilience;
+import com.example.checkweather.utils.UpstreamKeyPool;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The request path of {@link CheckWeatherService} when the location is already in memory:
+ * key normalization, hot location tracking, the Caffeine lookup, the refresh-ahead check and the stage metrics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheLookupBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int entries;
+
+    private CheckWeatherService checkWeatherService;
+
+    @Setup
+    public void setUp() {
+        CacheConfig cacheConfig = new CacheConfig();
+        cacheConfig.setMaximumSize(entries * 2L);
+        WeatherCache weatherCache = new WeatherCache(cacheConfig);
+        WeatherMetrics weatherMetrics = new WeatherMetrics(new SimpleMeterRegistry());
+        LocationKeys locationKeys = new LocationKeys(new LocationConfig());
+        Instant fetchedAt = Instant.now();
+        for (int i = 0; i < entries; i++) {
+            weatherCache.put(locationKeys.of(BenchmarkData.city(i), BenchmarkData.country(i)).getKey(),
+                    new CachedWeather("clear sky", fetchedAt));
+        }
+        // Cache hits never reach the repository or the WebClient
+        checkWeatherService = new CheckWeatherService(null, null, weatherCache, new StoreConfig(),
+                new UpstreamKeyPool(new UpstreamKeyConfig()),
+                new UpstreamResilience(new ResilienceConfig(), CircuitBreakerRegistry.ofDefaults()),
+                weatherMetrics,
+                new HotLocationTracker(new WarmupConfig()),
+                locationKeys, null, null, null,
+                new CityCatalog(new CatalogConfig(), weatherMetrics),
+                new NegativeCache(new NegativeCacheConfig(), weatherMetrics));
+    }
+
+    @Benchmark
+    public String cachedDescription() {
+        int index = ThreadLocalRandom.current().nextInt(entries);
+        return checkWeatherService.getWeatherDescription(BenchmarkData.city(index), BenchmarkData.country(index), "key")
+                .block();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.checkweather.benchmark;
+
+import com.example.checkweather.actuator.WeatherMetrics;
+import com.example.checkweather.cache.CityCatalog;
+import com.example.checkweather.cache.LocationKey;
+import com.example.checkweather.cache.LocationKeys;
+import com.example.checkweather.configuration.CatalogConfig;
+import com.example.checkweather.configuration.LocationConfig;
+import com.example.checkweather.model.CitySuggestion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation and prefix suggestions against {@link CityCatalog}, from a small catalog up to the size of the
+ * full OpenWeatherMap city list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CityCatalogBenchmark {
+
+    @Param({"10000", "200000"})
+    public int entries;
+
+    private CityCatalog cityCatalog;
+    private LocationKey[] known;
+    private LocationKey[] unknown;
+
+    @Setup
+    public void setUp() throws IOException {
+        StringBuilder file = new StringBuilder();
+        for (int i = 0; i < entries; i++) {
+            file.append(i).append('\t').append(BenchmarkData.city(i)).append('\t').append(BenchmarkData.country(i)).append('\n');
+        }
+        cityCatalog = new CityCatalog(new CatalogConfig(), new WeatherMetrics(new SimpleMeterRegistry()));
+        cityCatalog.load(new ByteArrayInputStream(file.toString().getBytes(StandardCharsets.UTF_8)));
+        LocationKeys locationKeys = new LocationKeys(new LocationConfig());
+        known = new LocationKey[1024];
+        unknown = new LocationKey[1024];
+        for (int i = 0; i < known.length; i++) {
+            int index = ThreadLocalRandom.current().nextInt(entries);
+            known[i] = locationKeys.of(BenchmarkData.city(index), BenchmarkData.country(index));
+            unknown[i] = locationKeys.of(BenchmarkData.city(index) + "x", BenchmarkData.country(index));
+        }
+    }
+
+    @Benchmark
+    public boolean containsKnown() {
+        return cityCatalog.contains(known[ThreadLocalRandom.current().nextInt(known.length)]);
+    }
+
+    @Benchmark
+    public boolean containsUnknown() {
+        return cityCatalog.contains(unknown[ThreadLocalRandom.current().nextInt(unknown.length)]);
+    }
+
+    @Benchmark
+    public List<CitySuggestion> suggest() {
+        return cityCatalog.suggest("city" + ThreadLocalRandom.current().nextInt(100), 10);
+    }
+}
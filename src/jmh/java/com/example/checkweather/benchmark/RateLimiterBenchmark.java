@@ -0,0 +1,49 @@
+package com.example.checkweather.benchmark;
+
+import com.example.checkweather.configuration.RateLimitConfig;
+import com.example.checkweather.exception.RateLimitExceededException;
+import com.example.checkweather.utils.LocalRateLimiter;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a rate limit check. With one key every thread CASes the same bucket, with many keys
+ * the threads mostly work on different buckets and the map lookup dominates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    @Param({"1", "1000"})
+    public int keyCount;
+
+    private LocalRateLimiter rateLimiter;
+    private String[] keys;
+
+    @Setup
+    public void setUp() {
+        RateLimitConfig rateLimitConfig = new RateLimitConfig();
+        // Large enough that the benchmark measures the check itself, not rejections
+        rateLimitConfig.setLimit(Integer.MAX_VALUE);
+        rateLimitConfig.setPeriod(Duration.ofHours(1));
+        rateLimiter = new LocalRateLimiter(rateLimitConfig);
+        keys = BenchmarkData.apiKeys(keyCount);
+    }
+
+    @Benchmark
+    public long enforceRateLimit() {
+        String key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+        try {
+            return rateLimiter.enforceRateLimit(key);
+        } catch (RateLimitExceededException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.checkweather.benchmark;
+
+import com.example.checkweather.model.CheckWeatherData;
+import com.example.checkweather.repository.CheckWeatherRepository;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indexed lookups through {@link CheckWeatherRepository} against an in-memory R2DBC H2 database
+ * created from the application's schema.sql and seeded with {@code rows} locations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private ConnectionPool connectionPool;
+    private CheckWeatherRepository weatherRepository;
+
+    @Setup
+    public void setUp() throws IOException {
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get("r2dbc:h2:mem:///benchmark" + System.nanoTime()))
+                .maxSize(32)
+                .build());
+        R2dbcEntityTemplate template = new R2dbcEntityTemplate(connectionPool);
+        DatabaseClient databaseClient = template.getDatabaseClient();
+
+        String schema = new ClassPathResource("schema.sql").getContentAsString(StandardCharsets.UTF_8);
+        Flux.fromStream(Arrays.stream(schema.split(";")))
+                .map(statement -> statement.replaceAll("(?m)^--.*$", "").trim())
+                .filter(statement -> !statement.isEmpty())
+                .concatMap(statement -> databaseClient.sql(statement).then())
+                .blockLast();
+        databaseClient.sql("INSERT INTO check_weather_data (city, country, description, fetched_at) " +
+                        "SELECT 'city' || X, 'c' || MOD(X, 250), 'clear sky', CURRENT_TIMESTAMP " +
+                        "FROM SYSTEM_RANGE(0, " + (rows - 1) + ")")
+                .then()
+                .block();
+
+        weatherRepository = new R2dbcRepositoryFactory(template).getRepository(CheckWeatherRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        connectionPool.dispose();
+    }
+
+    @Benchmark
+    public CheckWeatherData findByCityAndCountry() {
+        int index = ThreadLocalRandom.current().nextInt(rows);
+        return weatherRepository.findByCityAndCountry(BenchmarkData.city(index), BenchmarkData.country(index)).block();
+    }
+
+    @Benchmark
+    public CheckWeatherData findMissing() {
+        return weatherRepository.findByCityAndCountry("atlantis", "").block();
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.checkweather.benchmark;
+
+import com.example.checkweather.model.CheckWeatherResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of a full OpenWeatherMap payload into {@link CheckWeatherResponse}, with the same
+ * ObjectMapper defaults Spring Boot gives the WebClient codecs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseDecodingBenchmark {
+
+    private ObjectMapper objectMapper;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        payload = BenchmarkData.WEATHER_RESPONSE_JSON.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String decode() throws IOException {
+        return objectMapper.readValue(payload, CheckWeatherResponse.class).getWeather().get(0).getDescription();
+    }
+}
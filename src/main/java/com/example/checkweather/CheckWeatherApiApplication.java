@@ -1,18 +1,22 @@
 package com.example.checkweather;
 
 import com.example.checkweather.configuration.ApiKeyConfig;
+import com.example.checkweather.repository.H2FileStorePreparer;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
-import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableCaching
+@EnableScheduling
 @EnableConfigurationProperties(ApiKeyConfig.class)
 public class CheckWeatherApiApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(CheckWeatherApiApplication.class, args);
+		SpringApplication application = new SpringApplication(CheckWeatherApiApplication.class);
+		// Must run before the R2DBC pool opens the database file
+		application.addListeners(new H2FileStorePreparer());
+		application.run(args);
 	}
 
 }
@@ -0,0 +1,40 @@
+package com.example.checkweather.actuator;
+
+import com.example.checkweather.cache.NegativeCache;
+import com.example.checkweather.configuration.NegativeCacheConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Exposes the negative cache at /actuator/negativecache, DELETE forgets every remembered 404. The DELETE is
+ * refused with 403 unless {@code openweathermap.api.negative-cache.clear-enabled} is set, so exposing the
+ * endpoint for its stats never lets an anonymous caller wipe it.
+ */
+@Component
+@Endpoint(id = "negativecache")
+@RequiredArgsConstructor
+public class NegativeCacheEndpoint {
+    private final NegativeCache negativeCache;
+    private final NegativeCacheConfig negativeCacheConfig;
+
+    @ReadOperation
+    public Map<String, Object> negativeCache() {
+        return negativeCache.stats();
+    }
+
+    @DeleteOperation
+    public WebEndpointResponse<Void> clear() {
+        if (!negativeCacheConfig.isClearEnabled()) {
+            return new WebEndpointResponse<>(HttpStatus.FORBIDDEN.value());
+        }
+        negativeCache.clear();
+        return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NO_CONTENT);
+    }
+}
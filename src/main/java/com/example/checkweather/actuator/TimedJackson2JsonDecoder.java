@@ -0,0 +1,26 @@
+package com.example.checkweather.actuator;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.util.MimeType;
+
+import java.util.Map;
+
+/**
+ * Jackson decoder that times the decode of an upstream body once it has been fully received,
+ * so the json_decode stage excludes network time.
+ */
+public class TimedJackson2JsonDecoder extends Jackson2JsonDecoder {
+    private final WeatherMetrics weatherMetrics;
+
+    public TimedJackson2JsonDecoder(WeatherMetrics weatherMetrics) {
+        this.weatherMetrics = weatherMetrics;
+    }
+
+    @Override
+    public Object decode(DataBuffer dataBuffer, ResolvableType targetType, MimeType mimeType, Map<String, Object> hints) {
+        return weatherMetrics.time(WeatherMetrics.STAGE_JSON_DECODE,
+                () -> super.decode(dataBuffer, targetType, mimeType, hints));
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.checkweather.actuator;
+
+import com.example.checkweather.utils.UpstreamKeyPool;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Exposes per upstream key usage at /actuator/upstreamkeys.
+ */
+@Component
+@Endpoint(id = "upstreamkeys")
+@RequiredArgsConstructor
+public class UpstreamKeysEndpoint {
+    private final UpstreamKeyPool upstreamKeyPool;
+
+    @ReadOperation
+    public Map<String, UpstreamKeyPool.KeyUsage> upstreamKeys() {
+        return upstreamKeyPool.usage();
+    }
+}
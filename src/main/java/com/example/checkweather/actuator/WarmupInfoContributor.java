@@ -0,0 +1,38 @@
+package com.example.checkweather.actuator;
+
+import com.example.checkweather.cache.HotLocationTracker;
+import com.example.checkweather.configuration.WarmupConfig;
+import com.example.checkweather.service.CacheWarmer;
+import com.example.checkweather.utils.UpstreamKeyPool;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reports at /actuator/info whether cache warm-up is doing anything. Warm-up only calls upstream with the
+ * service's own keys, so it is enabled but inactive until an upstream key pool is configured.
+ */
+@Component
+@RequiredArgsConstructor
+public class WarmupInfoContributor implements InfoContributor {
+    private final CacheWarmer cacheWarmer;
+    private final WarmupConfig warmupConfig;
+    private final UpstreamKeyPool upstreamKeyPool;
+    private final HotLocationTracker hotLocationTracker;
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        Map<String, Object> warmup = new LinkedHashMap<>();
+        warmup.put("enabled", warmupConfig.isEnabled());
+        warmup.put("active", cacheWarmer.isActive());
+        if (warmupConfig.isEnabled() && !upstreamKeyPool.isEnabled()) {
+            warmup.put("reason", "no upstream keys configured");
+        }
+        warmup.put("hotLocations", hotLocationTracker.hotKeys().size());
+        builder.withDetail("warmup", warmup);
+    }
+}
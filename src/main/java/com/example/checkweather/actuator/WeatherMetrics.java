@@ -0,0 +1,165 @@
+package com.example.checkweather.actuator;
+
+import com.example.checkweather.exception.InvalidApiKeyException;
+import com.example.checkweather.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Timers per stage of a weather lookup (weather.lookup.stage, tagged by stage and outcome) and
+ * counters for cache hits, upstream status codes, rate limit rejections and store writes, the size of
+ * the city catalog and the state of the negative cache.
+ * Timers publish histogram buckets so percentiles can be aggregated across replicas.
+ */
+@Component
+public class WeatherMetrics {
+    public static final String STAGE_KEY_VALIDATION = "key_validation";
+    public static final String STAGE_RATE_LIMIT = "rate_limit";
+    public static final String STAGE_CACHE_LOOKUP = "cache_lookup";
+    public static final String STAGE_DB_QUERY = "db_query";
+    public static final String STAGE_UPSTREAM_CALL = "upstream_call";
+    public static final String STAGE_JSON_DECODE = "json_decode";
+    public static final String STAGE_DB_SAVE = "db_save";
+
+    public static final String LAYER_MEMORY = "memory";
+    public static final String LAYER_STORE = "store";
+
+    public static final String WRITE_QUEUED = "queued";
+    public static final String WRITE_DIRECT = "direct";
+    public static final String WRITE_FAILED = "failed";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    // Recorded on every flush and group request, so registered once instead of looked up per call
+    private final DistributionSummary storeBatchSize;
+    private final DistributionSummary upstreamBatchSize;
+
+    @Autowired
+    public WeatherMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.storeBatchSize = DistributionSummary.builder("weather.store.batch.size")
+                .description("Rows written per write-behind flush")
+                .register(meterRegistry);
+        this.upstreamBatchSize = DistributionSummary.builder("weather.upstream.batch.size")
+                .description("Locations answered per upstream group request")
+                .register(meterRegistry);
+    }
+
+    public <T> T time(String stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = work.get();
+            outcome = "success";
+            return result;
+        } catch (InvalidApiKeyException | RateLimitExceededException e) {
+            outcome = "rejected";
+            throw e;
+        } finally {
+            record(stage, outcome, start);
+        }
+    }
+
+    public void time(String stage, Runnable work) {
+        time(stage, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public <T> Mono<T> time(String stage, Mono<T> work) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return work
+                    .doOnSuccess(value -> record(stage, value == null ? "empty" : "success", start))
+                    .doOnError(error -> record(stage, "error", start))
+                    .doOnCancel(() -> record(stage, "cancelled", start));
+        });
+    }
+
+    public void cacheResult(String layer, boolean hit) {
+        counter("weather.cache.requests", "layer", layer, "result", hit ? "hit" : "miss").increment();
+    }
+
+    public void upstreamResponse(String status) {
+        counter("weather.upstream.responses", "status", status).increment();
+    }
+
+    public void rateLimitRejected() {
+        counter("weather.ratelimit.rejections").increment();
+    }
+
+    public void storeWrites(String mode, int rows) {
+        counter("weather.store.writes", "mode", mode).increment(rows);
+    }
+
+    public void storeBatch(int rows) {
+        storeBatchSize.record(rows);
+    }
+
+    public void upstreamBatch(int locations) {
+        upstreamBatchSize.record(locations);
+    }
+
+    public void writeQueue(Collection<?> queue) {
+        Gauge.builder("weather.store.queue.depth", queue, Collection::size)
+                .description("Rows waiting to be written to the store")
+                .register(meterRegistry);
+    }
+
+    public <T> void catalog(T catalog, ToDoubleFunction<T> cities, ToDoubleFunction<T> bytes) {
+        Gauge.builder("weather.catalog.cities", catalog, cities)
+                .description("Cities known to the city catalog")
+                .register(meterRegistry);
+        Gauge.builder("weather.catalog.memory", catalog, bytes)
+                .description("Heap used by the packed city catalog")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public void negativeRecorded() {
+        counter("weather.negative.recorded").increment();
+    }
+
+    public void negativeHit(String source) {
+        counter("weather.negative.hits", "source", source).increment();
+    }
+
+    public <T> void negativeCache(T negativeCache, ToDoubleFunction<T> entries, ToDoubleFunction<T> falsePositiveRate) {
+        Gauge.builder("weather.negative.entries", negativeCache, entries)
+                .description("Locations answered with 404 held exactly in the negative cache")
+                .register(meterRegistry);
+        Gauge.builder("weather.negative.bloom.fpp", negativeCache, falsePositiveRate)
+                .description("Estimated false positive rate of the negative cache Bloom filter")
+                .register(meterRegistry);
+    }
+
+    private void record(String stage, String outcome, long start) {
+        timers.computeIfAbsent(stage + ':' + outcome, key -> Timer.builder("weather.lookup.stage")
+                        .description("Time spent in each stage of a weather lookup")
+                        .tag("stage", stage)
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private Counter counter(String name, String... tags) {
+        return counters.computeIfAbsent(name + String.join(":", tags),
+                key -> Counter.builder(name).tags(tags).register(meterRegistry));
+    }
+}
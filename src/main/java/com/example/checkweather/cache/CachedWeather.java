@@ -0,0 +1,11 @@
+package com.example.checkweather.cache;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+@Value
+public class CachedWeather {
+    String description;
+    Instant fetchedAt;
+}
@@ -0,0 +1,272 @@
+package com.example.checkweather.cache;
+
+import com.example.checkweather.actuator.WeatherMetrics;
+import com.example.checkweather.configuration.CatalogConfig;
+import com.example.checkweather.model.CitySuggestion;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Known cities with their OpenWeatherMap IDs, loaded once at startup. Entries are sorted by folded name and
+ * packed into a few flat arrays: names as UTF-8 in one byte array with an offset table, IDs in an int array
+ * and countries as a two byte index into a dictionary of codes. That costs about twice the name length plus
+ * 14 bytes per city, roughly 7 MB for the full OpenWeatherMap list of 200k cities, see {@link #memoryBytes()}.
+ * Lookups and prefix searches are binary searches over the folded names.
+ */
+@Component
+public class CityCatalog {
+    private static final Logger logger = LoggerFactory.getLogger(CityCatalog.class);
+
+    private final CatalogConfig catalogConfig;
+    private volatile Index index = Index.EMPTY;
+
+    @Autowired
+    public CityCatalog(CatalogConfig catalogConfig, WeatherMetrics weatherMetrics) {
+        this.catalogConfig = catalogConfig;
+        weatherMetrics.catalog(this, CityCatalog::size, CityCatalog::memoryBytes);
+    }
+
+    @PostConstruct
+    public void load() {
+        String file = catalogConfig.getFile();
+        if (file == null || file.isBlank()) {
+            return;
+        }
+        Resource resource = new DefaultResourceLoader().getResource(file);
+        try (InputStream in = file.endsWith(".gz") ? new GZIPInputStream(resource.getInputStream()) : resource.getInputStream()) {
+            load(in);
+            logger.info("Loaded {} cities from {} into {} bytes", size(), file, memoryBytes());
+        } catch (IOException | RuntimeException e) {
+            // Without a catalog every location is passed on to OpenWeatherMap, as before
+            logger.warn("Could not load the city catalog from {}, locations are not validated", file, e);
+        }
+    }
+
+    public void load(InputStream in) throws IOException {
+        index = Index.read(in);
+    }
+
+    public boolean isLoaded() {
+        return index.size() > 0;
+    }
+
+    /**
+     * True when the catalog is enforced, loaded and knows no city of this name in this country. Without a
+     * country any city of the name is accepted. Grid cells are never rejected.
+     */
+    public boolean rejects(LocationKey location) {
+        return catalogConfig.isEnforce() && isLoaded() && !location.isCell() && !contains(location);
+    }
+
+    public boolean contains(LocationKey location) {
+        Index current = index;
+        int first = current.first(location.getCity());
+        if (location.getCountry().isEmpty()) {
+            return first >= 0;
+        }
+        return first >= 0 && current.find(first, location.getCity(), location.getCountry()) >= 0;
+    }
+
+    /**
+     * The OpenWeatherMap ID of the location, empty when it is unknown or ambiguous. The name has to be unique
+     * in the country, or in the whole catalog without a country.
+     */
+    public OptionalLong cityId(LocationKey location) {
+        Index current = index;
+        int first = current.first(location.getCity());
+        if (first < 0) {
+            return OptionalLong.empty();
+        }
+        if (location.getCountry().isEmpty()) {
+            boolean unique = first + 1 >= current.size() || current.compareName(first + 1, location.getCity()) != 0;
+            return unique ? OptionalLong.of(current.ids[first]) : OptionalLong.empty();
+        }
+        // Entries of one name are sorted by country, so a second city of the name in the country follows the first
+        int match = current.find(first, location.getCity(), location.getCountry());
+        boolean unique = match >= 0 && (match + 1 >= current.size() || current.compareName(match + 1, location.getCity()) != 0
+                || !current.country(match + 1).equals(location.getCountry()));
+        return unique ? OptionalLong.of(current.ids[match]) : OptionalLong.empty();
+    }
+
+    /**
+     * Up to {@code limit} cities whose folded name starts with the folded prefix, in name order.
+     */
+    public List<CitySuggestion> suggest(String prefix, int limit) {
+        Index current = index;
+        byte[] folded = LocationKeys.fold(prefix).getBytes(StandardCharsets.UTF_8);
+        List<CitySuggestion> suggestions = new ArrayList<>(Math.min(limit, 64));
+        for (int i = current.lowerBound(folded); i < current.size() && suggestions.size() < limit && current.startsWith(i, folded); i++) {
+            suggestions.add(new CitySuggestion(current.ids[i], current.name(i), current.country(i).toUpperCase(Locale.ROOT)));
+        }
+        return suggestions;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Heap used by the packed arrays, counting 16 bytes of header per array.
+     */
+    public long memoryBytes() {
+        return index.memoryBytes();
+    }
+
+    private static final class Index {
+        static final Index EMPTY = new Index(new byte[0], new int[] {0}, new byte[0], new int[] {0}, new int[0], new short[0], new String[0]);
+
+        // Folded names, the sort key, and the names as written in the file
+        final byte[] keys;
+        final int[] keyOffsets;
+        final byte[] names;
+        final int[] nameOffsets;
+        final int[] ids;
+        final short[] countries;
+        final String[] countryCodes;
+
+        Index(byte[] keys, int[] keyOffsets, byte[] names, int[] nameOffsets, int[] ids, short[] countries, String[] countryCodes) {
+            this.keys = keys;
+            this.keyOffsets = keyOffsets;
+            this.names = names;
+            this.nameOffsets = nameOffsets;
+            this.ids = ids;
+            this.countries = countries;
+            this.countryCodes = countryCodes;
+        }
+
+        static Index read(InputStream in) throws IOException {
+            List<Row> rows = new ArrayList<>();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 3) {
+                    throw new IllegalArgumentException("Expected id, name and country in catalog line: " + line);
+                }
+                String name = fields[1].strip();
+                rows.add(new Row(Integer.parseInt(fields[0].strip()), LocationKeys.fold(name).getBytes(StandardCharsets.UTF_8),
+                        name.getBytes(StandardCharsets.UTF_8), LocationKeys.fold(fields[2])));
+            }
+            // Unsigned byte order of UTF-8 is code point order, the same order the binary searches compare in
+            rows.sort(Comparator.<Row, byte[]>comparing(Row::key, Arrays::compareUnsigned).thenComparing(Row::country));
+            return pack(rows);
+        }
+
+        private static Index pack(List<Row> rows) {
+            int size = rows.size();
+            int[] keyOffsets = new int[size + 1];
+            int[] nameOffsets = new int[size + 1];
+            int[] ids = new int[size];
+            short[] countries = new short[size];
+            Map<String, Short> dictionary = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                Row row = rows.get(i);
+                keyOffsets[i + 1] = keyOffsets[i] + row.key().length;
+                nameOffsets[i + 1] = nameOffsets[i] + row.name().length;
+                ids[i] = row.id();
+                countries[i] = dictionary.computeIfAbsent(row.country(), code -> (short) dictionary.size());
+            }
+            byte[] keys = new byte[keyOffsets[size]];
+            byte[] names = new byte[nameOffsets[size]];
+            for (int i = 0; i < size; i++) {
+                Row row = rows.get(i);
+                System.arraycopy(row.key(), 0, keys, keyOffsets[i], row.key().length);
+                System.arraycopy(row.name(), 0, names, nameOffsets[i], row.name().length);
+            }
+            String[] countryCodes = new String[dictionary.size()];
+            dictionary.forEach((code, id) -> countryCodes[id] = code);
+            return new Index(keys, keyOffsets, names, nameOffsets, ids, countries, countryCodes);
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        String name(int i) {
+            return new String(names, nameOffsets[i], nameOffsets[i + 1] - nameOffsets[i], StandardCharsets.UTF_8);
+        }
+
+        String country(int i) {
+            return countryCodes[countries[i]];
+        }
+
+        int compareName(int i, String city) {
+            byte[] folded = city.getBytes(StandardCharsets.UTF_8);
+            return Arrays.compareUnsigned(keys, keyOffsets[i], keyOffsets[i + 1], folded, 0, folded.length);
+        }
+
+        /**
+         * Position of the first entry named {@code city}, which is already folded, or -1.
+         */
+        int first(String city) {
+            byte[] folded = city.getBytes(StandardCharsets.UTF_8);
+            int i = lowerBound(folded);
+            return i < size() && Arrays.compareUnsigned(keys, keyOffsets[i], keyOffsets[i + 1], folded, 0, folded.length) == 0 ? i : -1;
+        }
+
+        /**
+         * Position of the entry named {@code city} in {@code country}, scanning from the first entry of that name.
+         */
+        int find(int first, String city, String country) {
+            for (int i = first; i < size() && compareName(i, city) == 0; i++) {
+                if (country(i).equals(country)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int lowerBound(byte[] folded) {
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (Arrays.compareUnsigned(keys, keyOffsets[mid], keyOffsets[mid + 1], folded, 0, folded.length) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        boolean startsWith(int i, byte[] prefix) {
+            int length = keyOffsets[i + 1] - keyOffsets[i];
+            return length >= prefix.length
+                    && Arrays.equals(keys, keyOffsets[i], keyOffsets[i] + prefix.length, prefix, 0, prefix.length);
+        }
+
+        long memoryBytes() {
+            long arrays = 16L * 7;
+            long codes = Arrays.stream(countryCodes).mapToLong(code -> 56 + code.length()).sum();
+            return arrays + keys.length + names.length + 4L * (keyOffsets.length + nameOffsets.length + ids.length)
+                    + 2L * countries.length + 4L * countryCodes.length + codes;
+        }
+
+        private record Row(int id, byte[] key, byte[] name, String country) {
+        }
+    }
+}
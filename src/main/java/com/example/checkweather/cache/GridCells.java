@@ -0,0 +1,132 @@
+package com.example.checkweather.cache;
+
+import com.example.checkweather.configuration.CacheConfig;
+import com.example.checkweather.configuration.GeoConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Maps coordinates onto a fixed grid of {@code cellSize} degree cells so nearby requests share one cached
+ * observation. Cells are identified by their row and column packed into a long, and the index of cells with
+ * a cached observation is keyed the same way, so finding a cached neighbour costs at most nine hash lookups.
+ */
+@Component
+public class GridCells {
+    public static final String CELL_PREFIX = "@";
+
+    private final double cellSize;
+    private final int columns;
+    private final boolean shareNeighbours;
+    private final Cache<Long, LocationKey> cells;
+    // Cells whose observation was cached, kept no longer than the memory cache keeps the observation
+    private final Cache<Long, LocationKey> cachedCells;
+
+    @Autowired
+    public GridCells(GeoConfig geoConfig, CacheConfig cacheConfig) {
+        if (geoConfig.getCellSize() <= 0 || geoConfig.getCellSize() > 10) {
+            throw new IllegalStateException("openweathermap.api.geo.cellSize must be within (0, 10] degrees");
+        }
+        this.cellSize = geoConfig.getCellSize();
+        this.columns = (int) Math.ceil(360 / cellSize);
+        this.shareNeighbours = geoConfig.isShareNeighbours();
+        this.cells = Caffeine.newBuilder().maximumSize(geoConfig.getMaxCells()).build();
+        this.cachedCells = Caffeine.newBuilder()
+                .maximumSize(geoConfig.getMaxCells())
+                .expireAfterWrite(cacheConfig.getTtl())
+                .build();
+    }
+
+    public static boolean isCell(String key) {
+        return key.startsWith(CELL_PREFIX);
+    }
+
+    public LocationKey cellOf(double latitude, double longitude) {
+        return cell(row(latitude), column(longitude));
+    }
+
+    /**
+     * The cell a key of the form {@code @lat,lon} was built for.
+     */
+    public LocationKey parse(String key) {
+        int separator = key.indexOf(',');
+        return cellOf(Double.parseDouble(key.substring(CELL_PREFIX.length(), separator)),
+                Double.parseDouble(key.substring(separator + 1)));
+    }
+
+    public void markCached(LocationKey cell) {
+        if (cell.isCell()) {
+            cachedCells.put(id(row(cell.getLatitude()), column(cell.getLongitude())), cell);
+        }
+    }
+
+    public long cachedCount() {
+        return cachedCells.estimatedSize();
+    }
+
+    /**
+     * The cached cell nearest to the coordinates among the cell itself and its eight neighbours, or null when
+     * none of them is cached or neighbour sharing is off.
+     */
+    public LocationKey nearestCachedNeighbour(double latitude, double longitude) {
+        if (!shareNeighbours) {
+            return null;
+        }
+        int row = row(latitude);
+        int column = column(longitude);
+        return IntStream.rangeClosed(-1, 1)
+                .boxed()
+                .flatMap(dr -> IntStream.rangeClosed(-1, 1).mapToObj(dc -> cachedCells.getIfPresent(id(row + dr, wrap(column + dc)))))
+                .filter(cell -> cell != null)
+                .min(Comparator.comparingDouble(cell -> distance(latitude, longitude, cell)))
+                .orElse(null);
+    }
+
+    private LocationKey cell(int row, int column) {
+        return cells.get(id(row, column), id -> {
+            // Rounded like the key, so the upstream query never carries floating point noise
+            double latitude = round(Math.min(90, -90 + (row + 0.5) * cellSize));
+            double longitude = round(-180 + (column + 0.5) * cellSize);
+            String name = String.format(Locale.ROOT, "%s%.4f,%.4f", CELL_PREFIX, latitude, longitude);
+            return new LocationKey(name, latitude, longitude);
+        });
+    }
+
+    private int row(double latitude) {
+        if (!(latitude >= -90 && latitude <= 90)) {
+            throw new IllegalArgumentException("Latitude must be between -90 and 90");
+        }
+        return (int) Math.floor((Math.min(latitude, 90 - 1e-9) + 90) / cellSize);
+    }
+
+    private int column(double longitude) {
+        if (!(longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException("Longitude must be between -180 and 180");
+        }
+        return wrap((int) Math.floor((longitude + 180) / cellSize));
+    }
+
+    private int wrap(int column) {
+        // 180 and -180 are the same meridian, the neighbours of the last column are in the first one
+        return Math.floorMod(column, columns);
+    }
+
+    private long id(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+
+    private static double round(double degrees) {
+        return Math.round(degrees * 10_000) / 10_000.0;
+    }
+
+    private static double distance(double latitude, double longitude, LocationKey cell) {
+        double dLat = latitude - cell.getLatitude();
+        double dLon = (longitude - cell.getLongitude()) * Math.cos(Math.toRadians(latitude));
+        return dLat * dLat + dLon * dLon;
+    }
+}
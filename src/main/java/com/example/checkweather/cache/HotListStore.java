@@ -0,0 +1,13 @@
+package com.example.checkweather.cache;
+
+import java.util.List;
+
+/**
+ * Keeps the list of most requested cache keys across restarts, most requested first.
+ */
+public interface HotListStore {
+
+    List<String> load();
+
+    void save(List<String> keys);
+}
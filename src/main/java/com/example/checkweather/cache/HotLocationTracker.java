@@ -0,0 +1,96 @@
+package com.example.checkweather.cache;
+
+import com.example.checkweather.configuration.WarmupConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate request counts per cache key in fixed memory: a count-min sketch estimates every key's
+ * frequency and a small candidate map remembers the keys whose estimate made it into the top K.
+ * Candidates are trimmed back to K once the map has doubled, so recording stays lock-free.
+ */
+@Component
+public class HotLocationTracker {
+    private final int topK;
+    private final int width;
+    private final int depth;
+    private final AtomicLongArray counts;
+    private final Map<String, Long> candidates = new ConcurrentHashMap<>();
+    // Estimate a key needs to become a candidate once the map holds K keys
+    private volatile long admissionThreshold;
+
+    @Autowired
+    public HotLocationTracker(WarmupConfig warmupConfig) {
+        this.topK = warmupConfig.getTopK();
+        this.width = warmupConfig.getSketchWidth();
+        this.depth = warmupConfig.getSketchDepth();
+        this.counts = new AtomicLongArray(width * depth);
+    }
+
+    public void record(String key) {
+        int hash = key.hashCode();
+        // Double hashing: row i uses hash + i * secondHash, secondHash is odd so rows differ
+        int secondHash = Integer.reverse(hash * 0x9E3779B9) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int column = Math.floorMod(hash + row * secondHash, width);
+            estimate = Math.min(estimate, counts.incrementAndGet(row * width + column));
+        }
+        if (estimate > admissionThreshold || candidates.size() < topK || candidates.containsKey(key)) {
+            candidates.put(key, estimate);
+            if (candidates.size() > 2 * topK) {
+                trim();
+            }
+        }
+    }
+
+    /**
+     * Most requested keys first, at most K of them.
+     */
+    public List<String> hotKeys() {
+        return candidates.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(topK)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    /**
+     * Starts from a persisted hot list, keeping its order until real traffic takes over.
+     */
+    public void seed(List<String> keys) {
+        int rank = Math.min(keys.size(), topK);
+        for (String key : keys.subList(0, rank)) {
+            candidates.putIfAbsent(key, (long) rank--);
+        }
+    }
+
+    /**
+     * Halves every count so keys that stopped being requested fall out of the list.
+     */
+    public synchronized void decay() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.getAndUpdate(i, count -> count >> 1);
+        }
+        candidates.replaceAll((key, count) -> count >> 1);
+        candidates.values().removeIf(count -> count == 0);
+        admissionThreshold >>= 1;
+    }
+
+    private synchronized void trim() {
+        if (candidates.size() <= 2 * topK) {
+            return;
+        }
+        List<Map.Entry<String, Long>> ranked = candidates.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .toList();
+        ranked.subList(topK, ranked.size()).forEach(entry -> candidates.remove(entry.getKey(), entry.getValue()));
+        admissionThreshold = ranked.get(topK - 1).getValue();
+    }
+}
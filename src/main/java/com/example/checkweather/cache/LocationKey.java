@@ -0,0 +1,55 @@
+package com.example.checkweather.cache;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Canonical location of a request, either a (city, country) pair obtained from {@link LocationKeys} or a grid
+ * cell obtained from {@link GridCells}. The same location always maps to the same cache key, database row and
+ * upstream query. Country is a lower case ISO 3166 alpha-2 code when it could be recognized and empty when the
+ * request had none. Cells carry the coordinates of their center and use {@code @lat,lon} as city.
+ */
+@Getter
+@EqualsAndHashCode(of = "key")
+public final class LocationKey {
+    private final String city;
+    private final String country;
+    // city,country for names, @lat,lon for cells, built once and shared by every request for this location
+    private final String key;
+    private final Double latitude;
+    private final Double longitude;
+
+    LocationKey(String city, String country) {
+        this.city = city;
+        this.country = country;
+        this.key = city + ',' + country;
+        this.latitude = null;
+        this.longitude = null;
+    }
+
+    LocationKey(String cell, double latitude, double longitude) {
+        this.city = cell;
+        this.country = "";
+        // Named keys never start with @, LocationKeys rejects such city names, so cells cannot share their entries
+        this.key = cell;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public boolean isCell() {
+        return latitude != null;
+    }
+
+    /**
+     * The q parameter of the OpenWeatherMap call, without a trailing comma when no country was given.
+     * Cells are queried with their coordinates instead.
+     */
+    public String query() {
+        return country.isEmpty() ? city : key;
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
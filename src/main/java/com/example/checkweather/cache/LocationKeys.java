@@ -0,0 +1,91 @@
+package com.example.checkweather.cache;
+
+import com.example.checkweather.configuration.LocationConfig;
+import com.example.checkweather.exception.InvalidLocationException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Turns the city and country of a request into a {@link LocationKey}. Both are Unicode normalized (NFKC),
+ * trimmed, have inner whitespace collapsed and are case folded. Countries given as alpha-3 codes or English
+ * names become alpha-2 codes, and configured aliases are applied. City names starting with {@code @} are
+ * rejected because that prefix marks {@link GridCells} keys, and commas are rejected in both parts because
+ * they separate city and country in the key, which hot location entries are parsed back from. Results are remembered per raw input, so a
+ * repeated request gets the same key instance back without building any strings.
+ */
+@Component
+public class LocationKeys {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final char SEPARATOR = ',';
+
+    private final Map<String, String> cityAliases = new HashMap<>();
+    private final Map<String, String> countries = new HashMap<>();
+    private final Cache<RawLocation, LocationKey> interned;
+    private final Function<RawLocation, LocationKey> canonicalizer = raw -> canonicalize(raw.city(), raw.country());
+
+    @Autowired
+    public LocationKeys(LocationConfig locationConfig) {
+        for (String code : Locale.getISOCountries()) {
+            Locale locale = new Locale.Builder().setRegion(code).build();
+            String alpha2 = fold(code);
+            countries.put(alpha2, alpha2);
+            countries.put(fold(locale.getISO3Country()), alpha2);
+            countries.put(fold(locale.getDisplayCountry(Locale.ENGLISH)), alpha2);
+        }
+        locationConfig.getCountryAliases().forEach((alias, country) -> countries.put(fold(alias), checkAlias(canonicalCountry(country))));
+        locationConfig.getAliases().forEach((alias, city) -> cityAliases.put(fold(alias), checkAlias(fold(city))));
+        this.interned = Caffeine.newBuilder().maximumSize(locationConfig.getInternSize()).build();
+    }
+
+    public LocationKey of(String city, String country) {
+        return interned.get(new RawLocation(city, country), canonicalizer);
+    }
+
+    private LocationKey canonicalize(String city, String country) {
+        String folded = fold(city);
+        String canonical = cityAliases.getOrDefault(folded, folded);
+        if (GridCells.isCell(canonical)) {
+            // @lat,lon is the key shape of grid cells, a city named like one would share the cell's cache entry
+            throw new InvalidLocationException("City names cannot start with " + GridCells.CELL_PREFIX);
+        }
+        String canonicalCountry = canonicalCountry(country);
+        if (canonical.indexOf(SEPARATOR) >= 0 || canonicalCountry.indexOf(SEPARATOR) >= 0) {
+            throw new InvalidLocationException("City and country names cannot contain " + SEPARATOR);
+        }
+        return new LocationKey(canonical, canonicalCountry);
+    }
+
+    private static String checkAlias(String target) {
+        if (target.indexOf(SEPARATOR) >= 0) {
+            throw new IllegalStateException("Location alias target " + target + " cannot contain " + SEPARATOR);
+        }
+        return target;
+    }
+
+    private String canonicalCountry(String country) {
+        String folded = fold(country);
+        // Unknown spellings are kept as they are and left to OpenWeatherMap
+        return countries.getOrDefault(folded, folded);
+    }
+
+    static String fold(String value) {
+        if (value == null) {
+            return "";
+        }
+        String normalized = WHITESPACE.matcher(Normalizer.normalize(value, Normalizer.Form.NFKC).strip()).replaceAll(" ");
+        // The round trip through upper case folds characters without a one to one case mapping, ß, ẞ and ss all become ss
+        return normalized.toLowerCase(Locale.ROOT).toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    private record RawLocation(String city, String country) {
+    }
+}
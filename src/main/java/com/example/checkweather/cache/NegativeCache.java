@@ -0,0 +1,115 @@
+package com.example.checkweather.cache;
+
+import com.example.checkweather.actuator.WeatherMetrics;
+import com.example.checkweather.configuration.NegativeCacheConfig;
+import com.example.checkweather.utils.ScalableBloomFilter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Locations OpenWeatherMap answered with 404, so repeated lookups of a bad name are rejected in-process. Keys are
+ * held exactly in a TTL map, which alone decides a rejection, and are also added to a scalable Bloom filter in
+ * front of it, so lookups of good locations almost never touch the map. The filter is split into two generations
+ * that rotate every {@code ttl}, which expires a key from the filter after one to two TTLs. A Bloom filter hit
+ * without a map entry is either an expired or evicted key or a false positive, it is let through and counted
+ * separately to keep the false positive rate visible.
+ */
+@Component
+public class NegativeCache {
+    public static final String SOURCE_MAP = "map";
+    public static final String SOURCE_BLOOM = "bloom";
+
+    private final NegativeCacheConfig negativeCacheConfig;
+    private final WeatherMetrics weatherMetrics;
+    private final Cache<String, Instant> recent;
+    private final AtomicReference<Generations> generations = new AtomicReference<>();
+
+    @Autowired
+    public NegativeCache(NegativeCacheConfig negativeCacheConfig, WeatherMetrics weatherMetrics) {
+        this.negativeCacheConfig = negativeCacheConfig;
+        this.weatherMetrics = weatherMetrics;
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(negativeCacheConfig.getMaxEntries())
+                .expireAfterWrite(negativeCacheConfig.getTtl())
+                .build();
+        this.generations.set(new Generations(newFilter(), newFilter()));
+        weatherMetrics.negativeCache(this, NegativeCache::size, NegativeCache::expectedFalsePositiveRate);
+    }
+
+    public void record(String key) {
+        if (!negativeCacheConfig.isEnabled()) {
+            return;
+        }
+        recent.put(key, Instant.now());
+        generations.get().current().put(key);
+        weatherMetrics.negativeRecorded();
+    }
+
+    /**
+     * True when the key was answered with 404 within the last TTL. A false positive of the filter never rejects
+     * a location, it only costs a map lookup.
+     */
+    public boolean isMissing(String key) {
+        if (!negativeCacheConfig.isEnabled()) {
+            return false;
+        }
+        // Good keys almost always stop at the filter, only suspects pay for the map lookup
+        Generations current = generations.get();
+        if (!current.current().mightContain(key) && !current.previous().mightContain(key)) {
+            return false;
+        }
+        boolean missing = recent.getIfPresent(key) != null;
+        weatherMetrics.negativeHit(missing ? SOURCE_MAP : SOURCE_BLOOM);
+        return missing;
+    }
+
+    @Scheduled(initialDelayString = "${openweathermap.api.negative-cache.ttl:PT10M}",
+            fixedDelayString = "${openweathermap.api.negative-cache.ttl:PT10M}")
+    public void rotate() {
+        generations.updateAndGet(old -> new Generations(newFilter(), old.current()));
+    }
+
+    /**
+     * Forgets every key, for when a location was wrongly reported missing or OpenWeatherMap added cities.
+     */
+    public void clear() {
+        recent.invalidateAll();
+        generations.set(new Generations(newFilter(), newFilter()));
+    }
+
+    public long size() {
+        return recent.estimatedSize();
+    }
+
+    public double expectedFalsePositiveRate() {
+        Generations current = generations.get();
+        return 1 - (1 - current.current().expectedFalsePositiveRate()) * (1 - current.previous().expectedFalsePositiveRate());
+    }
+
+    public Map<String, Object> stats() {
+        Generations current = generations.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", negativeCacheConfig.isEnabled());
+        stats.put("recentKeys", size());
+        stats.put("bloomKeys", current.current().approximateCount() + current.previous().approximateCount());
+        stats.put("bloomBits", current.current().bitSize() + current.previous().bitSize());
+        stats.put("expectedFalsePositiveRate", expectedFalsePositiveRate());
+        return stats;
+    }
+
+    private ScalableBloomFilter newFilter() {
+        // Lookups consult both generations, half the rate each keeps the combined rate within the configured one
+        return new ScalableBloomFilter(negativeCacheConfig.getExpectedKeys(), negativeCacheConfig.getFalsePositiveRate() / 2);
+    }
+
+    private record Generations(ScalableBloomFilter current, ScalableBloomFilter previous) {
+    }
+}
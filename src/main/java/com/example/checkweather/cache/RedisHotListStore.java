@@ -0,0 +1,33 @@
+package com.example.checkweather.cache;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hot list shared by all replicas, so a pod started by a rollout preloads what its predecessors served.
+ */
+public class RedisHotListStore implements HotListStore {
+    private static final String KEY = "check-weather:hot-locations";
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisHotListStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public List<String> load() {
+        String value = redisTemplate.opsForValue().get(KEY);
+        if (value == null || value.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.asList(value.split("\n"));
+    }
+
+    @Override
+    public void save(List<String> keys) {
+        redisTemplate.opsForValue().set(KEY, String.join("\n", keys));
+    }
+}
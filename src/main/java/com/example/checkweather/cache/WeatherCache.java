@@ -0,0 +1,105 @@
+package com.example.checkweather.cache;
+
+import com.example.checkweather.configuration.CacheConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded in-memory cache of weather descriptions keyed by {@link LocationKey#getKey()}.
+ * Each entry expires {@code ttl} after it was fetched upstream, so values loaded from
+ * the database only live for what is left of their original lifetime.
+ */
+@Component
+public class WeatherCache implements MeterBinder {
+    private final Cache<String, CachedWeather> cache;
+    private final Duration ttl;
+    private final Duration refreshAhead;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public WeatherCache(CacheConfig cacheConfig) {
+        this.ttl = cacheConfig.getTtl();
+        this.refreshAhead = cacheConfig.getRefreshAhead();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheConfig.getMaximumSize())
+                .expireAfter(new FetchTimeExpiry())
+                .recordStats()
+                .build();
+    }
+
+    public CachedWeather get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void put(String key, String description) {
+        put(key, new CachedWeather(description, Instant.now()));
+    }
+
+    public void put(String key, CachedWeather weather) {
+        if (remaining(weather).isNegative()) {
+            return;
+        }
+        cache.put(key, weather);
+    }
+
+    /**
+     * Claims the refresh of an entry that is close to expiry. Returns false when the entry
+     * is still fresh or another caller is already refreshing it.
+     */
+    public boolean tryStartRefresh(String key, CachedWeather weather) {
+        return remaining(weather).compareTo(refreshAhead) <= 0 && refreshing.add(key);
+    }
+
+    public void finishRefresh(String key) {
+        refreshing.remove(key);
+    }
+
+    public Duration remaining(CachedWeather weather) {
+        return ttl.minus(Duration.between(weather.getFetchedAt(), Instant.now()));
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Publishes size, evictions and hit/miss statistics of the underlying Caffeine cache.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "weather");
+    }
+
+    private class FetchTimeExpiry implements Expiry<String, CachedWeather> {
+        @Override
+        public long expireAfterCreate(String key, CachedWeather value, long currentTime) {
+            return Math.max(0, remaining(value).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedWeather value, long currentTime, long currentDuration) {
+            return Math.max(0, remaining(value).toNanos());
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedWeather value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
 import java.util.List;
 
 @Setter
@@ -12,16 +13,9 @@ import java.util.List;
 @Configuration
 @ConfigurationProperties(prefix = "openweathermap.api")
 public class ApiKeyConfig {
+    // Client keys, either plain or as sha256:<hex of the key>
     private List<String> keys;
-    private Client client;
-
-    @Getter
-    @Setter
-    public static class Client {
-        private String baseUrl;
-        private int connTimeout;
-        private int readTimeout;
-        private int writeTimeout;
-        private int responseTimeout;
-    }
+    // Optional file with more keys in the same format, one per line, re-read when it changes
+    private String keysFile;
+    private Duration keysReloadInterval = Duration.ofSeconds(30);
 }
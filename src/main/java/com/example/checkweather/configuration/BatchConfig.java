@@ -0,0 +1,13 @@
+package com.example.checkweather.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@ConfigurationProperties(prefix = "openweathermap.api.batch")
+@Data
+@Configuration
+public class BatchConfig {
+    // Number of batch items resolved at the same time
+    private int concurrency = 32;
+}
@@ -0,0 +1,19 @@
+package com.example.checkweather.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "openweathermap.api.cache")
+@Data
+@Configuration
+public class CacheConfig {
+    // Upper bound on the number of (city, country) entries held in memory
+    private long maximumSize = 10_000;
+    // How long a description stays valid after it was fetched from upstream
+    private Duration ttl = Duration.ofMinutes(10);
+    // Remaining lifetime below which a hit triggers a background refresh
+    private Duration refreshAhead = Duration.ofMinutes(2);
+}
@@ -0,0 +1,17 @@
+package com.example.checkweather.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@ConfigurationProperties(prefix = "openweathermap.api.catalog")
+@Data
+@Configuration
+public class CatalogConfig {
+    // Tab separated id, name and country code per line, gzip compressed when the name ends in .gz, empty disables the catalog
+    private String file = "classpath:catalog/cities.tsv";
+    // Answer unknown city/country pairs with 404 instead of asking OpenWeatherMap, only sensible with a complete list
+    private boolean enforce = false;
+    // Suggestions returned when the request does not ask for a number
+    private int suggestLimit = 10;
+}
@@ -0,0 +1,61 @@
+package com.example.checkweather.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Where the synchronous checks of the request path (API key validation, rate limiting) run.
+ * The virtual-threads mode needs a Java 21 runtime, build with {@code -PjavaVersion=21}.
+ */
+@ConfigurationProperties(prefix = "openweathermap.api.execution")
+@Data
+@Configuration
+public class ExecutionConfig {
+    // event-loop: checks run inline and only blocking rate limit backends are offloaded,
+    // virtual-threads: every check runs on its own virtual thread
+    private Mode mode = Mode.EVENT_LOOP;
+
+    @Bean("blockingScheduler")
+    public Scheduler blockingScheduler() {
+        return switch (mode) {
+            case EVENT_LOOP -> Schedulers.boundedElastic();
+            case VIRTUAL_THREADS -> Schedulers.fromExecutorService(virtualThreadExecutor(), "virtual");
+        };
+    }
+
+    /**
+     * The executor behind the virtual-threads scheduler, a bean so that shutdown closes it and waits for the
+     * checks still running. Absent in the event-loop mode.
+     */
+    @Bean(name = "virtualThreadExecutor", destroyMethod = "close")
+    public ExecutorService virtualThreadExecutor() {
+        return mode == Mode.VIRTUAL_THREADS ? newVirtualThreadPerTaskExecutor() : null;
+    }
+
+    public boolean offloadsAllChecks() {
+        return mode == Mode.VIRTUAL_THREADS;
+    }
+
+    // The build targets Java 17 by default, so the Java 21 factory is looked up at runtime
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("openweathermap.api.execution.mode=virtual-threads requires Java 21, running on "
+                    + Runtime.version(), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create the virtual thread executor", e);
+        }
+    }
+
+    public enum Mode {
+        EVENT_LOOP, VIRTUAL_THREADS
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.checkweather.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@ConfigurationProperties(prefix = "openweathermap.api.geo")
+@Data
+@Configuration
+public class GeoConfig {
+    // Edge of a grid cell in degrees, all coordinates inside one cell share one observation (0.05 is about 5 km)
+    private double cellSize = 0.05;
+    // Answer from a cached neighbouring cell instead of fetching a new one, trades accuracy for hit ratio
+    private boolean shareNeighbours = false;
+    // Cells remembered in the index of cached cells
+    private long maxCells = 100_000;
+}
@@ -0,0 +1,20 @@
+package com.example.checkweather.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "openweathermap.api.location")
+@Data
+@Configuration
+public class LocationConfig {
+    // Alternative city names mapped to the name used for caching and upstream, e.g. nyc: new york
+    private Map<String, String> aliases = new HashMap<>();
+    // Country spellings that are neither ISO 3166 codes nor English country names, e.g. uk: gb
+    private Map<String, String> countryAliases = new HashMap<>(Map.of("uk", "gb"));
+    // Raw (city, country) inputs remembered with their canonical key
+    private long internSize = 100_000;
+}
@@ -0,0 +1,25 @@
+package com.example.checkweather.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "openweathermap.api.negative-cache")
+@Data
+@Configuration
+public class NegativeCacheConfig {
+    // Remember locations OpenWeatherMap answered with 404 and reject them without another upstream call
+    private boolean enabled = true;
+    // How long a 404 is remembered, Bloom filter generations rotate at this interval so keys expire within twice of it
+    private Duration ttl = Duration.ofMinutes(10);
+    // 404 keys held exactly, only these are rejected, the Bloom filter in front keeps good keys off the map
+    private long maxEntries = 100_000;
+    // Keys per Bloom filter generation before it grows a new stage
+    private long expectedKeys = 100_000;
+    // Upper bound on the share of good locations the Bloom filter sends on to the map lookup
+    private double falsePositiveRate = 0.001;
+    // Allow DELETE /actuator/negativecache, which is unauthenticated, only switch on behind an internal management port
+    private boolean clearEnabled = false;
+}
@@ -0,0 +1,77 @@
+package com.example.checkweather.configuration;
+
+import com.example.checkweather.utils.DistributedRateLimiter;
+import com.example.checkweather.utils.InMemoryRateLimitStore;
+import com.example.checkweather.utils.LocalRateLimiter;
+import com.example.checkweather.utils.RateLimiter;
+import com.example.checkweather.utils.RedisRateLimitStore;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "openweathermap.api.rate-limit")
+@Data
+@Configuration
+@Validated
+public class RateLimitConfig {
+    // local: per replica token bucket, memory: fixed windows leased from an in-process store, redis: the same against Redis
+    private Backend backend = Backend.LOCAL;
+    // Maximum number of tokens a replica leases from the shared store at once, never more than half the limit
+    private int leaseSize = 10;
+    // When the shared store fails, true admits requests, false answers them with 503
+    private boolean failOpen = true;
+    // Default plan applied to every API key without an explicit plan
+    // Checked at binding, a zero limit would otherwise divide by zero on the first request of a key
+    @Positive
+    private int limit = 5;
+    @NotNull
+    private Duration period = Duration.ofHours(1);
+    // How often fully refilled buckets are dropped from memory
+    private Duration evictionInterval = Duration.ofMinutes(1);
+    // Named plans, e.g. premium: {limit: 100, period: 1h}
+    private Map<String, @Valid Plan> plans = new HashMap<>();
+    // API key -> plan name
+    private Map<String, String> keyPlans = new HashMap<>();
+
+    @Bean
+    public RateLimiter rateLimiter(ObjectProvider<StringRedisTemplate> redisTemplate) {
+        return switch (backend) {
+            case LOCAL -> new LocalRateLimiter(this);
+            case MEMORY -> new DistributedRateLimiter(this, new InMemoryRateLimitStore());
+            case REDIS -> new DistributedRateLimiter(this, new RedisRateLimitStore(redisTemplate.getObject()));
+        };
+    }
+
+    public Plan planFor(String apiKey) {
+        String planName = keyPlans.get(apiKey);
+        Plan plan = planName == null ? null : plans.get(planName);
+        return plan != null ? plan : new Plan(limit, period);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Plan {
+        @Positive
+        private int limit;
+        @NotNull
+        private Duration period;
+    }
+
+    public enum Backend {
+        LOCAL, MEMORY, REDIS
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.checkweather.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Adaptive timeout and hedging around the upstream call. The circuit breaker itself is configured
+ * under resilience4j.circuitbreaker.instances.openweathermap.
+ */
+@ConfigurationProperties(prefix = "openweathermap.api.resilience")
+@Data
+@Configuration
+public class ResilienceConfig {
+    // Latency samples needed before percentiles are trusted
+    private int minSamples = 20;
+    private AdaptiveTimeout adaptiveTimeout = new AdaptiveTimeout();
+    private Hedge hedge = new Hedge();
+
+    @Data
+    public static class AdaptiveTimeout {
+        private boolean enabled = true;
+        // Timeout is this percentile of recent latencies times the multiplier, clamped to [min, max]
+        private double percentile = 0.99;
+        private double multiplier = 2.0;
+        private Duration min = Duration.ofMillis(300);
+        private Duration max = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class Hedge {
+        private boolean enabled = false;
+        // A second request is sent when the first has not answered after this percentile of recent latencies
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(50);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.checkweather.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "openweathermap.api.store")
+@Data
+@Configuration
+public class StoreConfig {
+    // Rows older than this are not served as fresh data
+    private Duration ttl = Duration.ofMinutes(10);
+    // Rows older than this are deleted by the purge job
+    private Duration retention = Duration.ofHours(24);
+    // Oldest row still served, flagged as stale, when the upstream call times out or fails with 5xx
+    private Duration maxStale = Duration.ofHours(24);
+    // Pause before the background refresh that follows a stale answer
+    private Duration revalidateDelay = Duration.ofSeconds(5);
+    // With a file based H2 URL (disk profile), recover and compact the file before the pool opens it
+    private boolean compactOnStartup = true;
+    // Save fetched descriptions in batches after the response instead of before it
+    private boolean writeBehind = true;
+    // Rows waiting for a flush, a full queue makes new saves write directly on the request path
+    private int writeQueueSize = 10_000;
+    // A batch is flushed when it reaches this many rows or when the interval has passed
+    private int writeBatchSize = 100;
+    private Duration writeFlushInterval = Duration.ofMillis(200);
+    // Retries of a failed batch, with backoff, before its rows are dropped and counted as failed
+    private int writeRetries = 2;
+    // How long shutdown waits for queued rows to be written
+    private Duration writeShutdownTimeout = Duration.ofSeconds(10);
+    // How often the purge job runs
+    private Duration purgeInterval = Duration.ofMinutes(10);
+}
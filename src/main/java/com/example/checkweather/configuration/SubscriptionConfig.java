@@ -0,0 +1,17 @@
+package com.example.checkweather.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "openweathermap.api.subscription")
+@Data
+@Configuration
+public class SubscriptionConfig {
+    // How often each subscribed location is looked up, shared by all of its subscribers
+    private Duration refreshInterval = Duration.ofSeconds(30);
+    // Comment events that keep idle connections open through proxies
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+}
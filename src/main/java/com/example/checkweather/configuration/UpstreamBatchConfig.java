@@ -0,0 +1,27 @@
+package com.example.checkweather.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "openweathermap.api.upstream-batch")
+@Data
+@Configuration
+public class UpstreamBatchConfig {
+    // Fetch locations with a known city ID through group requests, needs openweathermap.api.upstream.keys
+    private boolean enabled = false;
+    // City IDs per group request, OpenWeatherMap accepts at most 20
+    private int maxSize = 20;
+    // How long a miss waits for others to join its group request
+    private Duration maxWait = Duration.ofMillis(10);
+    // City IDs waiting for a group request, further fetches fail fast with 503
+    private int maxQueued = 4096;
+    // Group requests in flight at the same time
+    private int concurrency = 8;
+    // Group endpoint, resolved against openweathermap.api.client.baseUrl
+    private String path = "group";
+    // Locations whose city ID is remembered
+    private long knownIds = 100_000;
+}
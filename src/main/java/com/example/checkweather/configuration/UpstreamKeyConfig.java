@@ -0,0 +1,24 @@
+package com.example.checkweather.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "openweathermap.api.upstream")
+@Data
+@Configuration
+public class UpstreamKeyConfig {
+    // OpenWeatherMap keys owned by the service, when empty the client's key is forwarded as before.
+    // Never list client keys here, their holders could drain the quota every client shares
+    private List<String> keys = new ArrayList<>();
+    // Calls each upstream key may make per quota period
+    private int quotaPerKey = 60;
+    private Duration quotaPeriod = Duration.ofMinutes(1);
+    // First quarantine after a 401/429, doubled on every consecutive rejection up to the maximum
+    private Duration quarantineBase = Duration.ofSeconds(30);
+    private Duration quarantineMax = Duration.ofMinutes(30);
+}
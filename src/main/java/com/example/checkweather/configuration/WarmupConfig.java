@@ -0,0 +1,49 @@
+package com.example.checkweather.configuration;
+
+import com.example.checkweather.cache.FileHotListStore;
+import com.example.checkweather.cache.HotListStore;
+import com.example.checkweather.cache.RedisHotListStore;
+import lombok.Data;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "openweathermap.api.warmup")
+@Data
+@Configuration
+public class WarmupConfig {
+    private boolean enabled = true;
+    // Number of most requested locations that are persisted, preloaded and kept warm
+    private int topK = 100;
+    // Count-min sketch dimensions, error is about total requests / width with probability 1 - 2^-depth
+    private int sketchWidth = 4096;
+    private int sketchDepth = 4;
+    // file: hot list in a local file, redis: shared by all replicas and kept across rollouts
+    private Store store = Store.FILE;
+    private String file = "data/hot-locations.txt";
+    // How often the hot list is saved, counts are halved at the same time so the list follows traffic
+    private Duration persistInterval = Duration.ofMinutes(5);
+    // How often hot locations are checked and refreshed when close to expiry
+    private Duration refreshInterval = Duration.ofMinutes(1);
+    // Upstream calls per second spent on preloading and refreshing
+    private int requestsPerSecond = 5;
+    // Readiness waits at most this long for the preload
+    private Duration startupTimeout = Duration.ofSeconds(60);
+
+    @Bean
+    public HotListStore hotListStore(ObjectProvider<StringRedisTemplate> redisTemplate) {
+        return switch (store) {
+            case FILE -> new FileHotListStore(Path.of(file));
+            case REDIS -> new RedisHotListStore(redisTemplate.getObject());
+        };
+    }
+
+    public enum Store {
+        FILE, REDIS
+    }
+}
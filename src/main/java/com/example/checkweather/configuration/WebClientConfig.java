@@ -1,5 +1,7 @@
 package com.example.checkweather.configuration;
 
+import com.example.checkweather.actuator.TimedJackson2JsonDecoder;
+import com.example.checkweather.actuator.WeatherMetrics;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
@@ -9,7 +11,9 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 import java.time.Duration;
 import java.util.concurrent.TimeUnit;
@@ -18,24 +22,72 @@ import java.util.concurrent.TimeUnit;
 @Data
 @Configuration
 public class WebClientConfig {
+    private static final String READ_TIMEOUT_HANDLER = "weatherApiReadTimeout";
+    private static final String WRITE_TIMEOUT_HANDLER = "weatherApiWriteTimeout";
+
     private String baseUrl;
     private int connTimeout;
     private int readTimeout;
     private int writeTimeout;
     private int responseTimeout;
+    // Negotiate HTTP/2 over TLS (ALPN), falling back to HTTP/1.1
+    private boolean http2 = false;
+    // Ask upstream for gzip responses
+    private boolean compression = true;
+    // Upper bound for caching resolved upstream addresses
+    private Duration dnsCacheTtl = Duration.ofMinutes(5);
+    private Pool pool = new Pool();
+
+    @Data
+    public static class Pool {
+        private int maxConnections = 200;
+        // Requests waiting for a connection beyond this are rejected instead of queued
+        private int pendingAcquireMaxCount = 1000;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictionInterval = Duration.ofSeconds(30);
+        // Reuse the most recently released connection so the rest can idle out
+        private boolean lifo = true;
+        // Publish active/idle/pending connection gauges through Micrometer
+        private boolean metrics = true;
+    }
 
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider weatherApiConnectionProvider() {
+        ConnectionProvider.Builder builder = ConnectionProvider.builder("openweathermap")
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictionInterval())
+                .metrics(pool.isMetrics());
+        if (pool.isLifo()) {
+            builder.lifo();
+        }
+        return builder.build();
+    }
 
     @Bean("weatherApiWebClient")
-    public WebClient getWeatherApiWebClient() {
-        HttpClient httpClient = HttpClient.create()
+    public WebClient getWeatherApiWebClient(ConnectionProvider weatherApiConnectionProvider, WeatherMetrics weatherMetrics) {
+        HttpClient httpClient = HttpClient.create(weatherApiConnectionProvider)
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connTimeout)
                 .responseTimeout(Duration.ofMillis(responseTimeout))
-                .doOnConnected(conn ->
-                        conn.addHandlerLast(new ReadTimeoutHandler(readTimeout, TimeUnit.MILLISECONDS))
-                                .addHandlerLast(new WriteTimeoutHandler(writeTimeout, TimeUnit.MILLISECONDS)));
+                .compress(compression)
+                .resolver(spec -> spec.cacheMaxTimeToLive(dnsCacheTtl))
+                // Scoped to one request: handlers added to the request's connection are removed when it goes back
+                // to the pool, so a read timeout never closes an idle pooled connection
+                .doOnRequest((request, conn) ->
+                        conn.addHandlerLast(READ_TIMEOUT_HANDLER, new ReadTimeoutHandler(readTimeout, TimeUnit.MILLISECONDS))
+                                .addHandlerLast(WRITE_TIMEOUT_HANDLER, new WriteTimeoutHandler(writeTimeout, TimeUnit.MILLISECONDS)));
+        if (http2) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
 
         return WebClient.builder()
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonDecoder(new TimedJackson2JsonDecoder(weatherMetrics)))
                 .baseUrl(baseUrl)
                 .build();
     }
@@ -1,44 +1,109 @@
 package com.example.checkweather.controller;
 
+import com.example.checkweather.actuator.WeatherMetrics;
+import com.example.checkweather.cache.CityCatalog;
+import com.example.checkweather.configuration.BatchConfig;
+import com.example.checkweather.configuration.CatalogConfig;
+import com.example.checkweather.configuration.ExecutionConfig;
+import com.example.checkweather.configuration.StoreConfig;
+import com.example.checkweather.configuration.SubscriptionConfig;
 import com.example.checkweather.exception.InvalidApiKeyException;
 import com.example.checkweather.exception.RateLimitExceededException;
 import com.example.checkweather.service.CheckWeatherService;
+import com.example.checkweather.service.WeatherSubscriptions;
 import com.example.checkweather.utils.ApiKeyValidator;
 import com.example.checkweather.utils.RateLimiter;
 import com.example.checkweather.exception.ApiErrorHandler;
+import com.example.checkweather.model.BatchWeatherRequest;
+import com.example.checkweather.model.BatchWeatherResult;
+import com.example.checkweather.model.CitySuggestion;
+import com.example.checkweather.model.WeatherResult;
+import com.example.checkweather.model.WeatherUpdate;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
 @Validated
 @RestController
 @RequestMapping("/api/weather")
 public class CheckWeatherController {
 
     private static final Logger logger = LoggerFactory.getLogger(CheckWeatherController.class);
+    // Age in seconds of a description served from the store while upstream is failing
+    public static final String DATA_AGE_HEADER = "X-Data-Age";
     private final CheckWeatherService checkWeatherService;
     private final ApiKeyValidator apiKeyValidator;
     private final RateLimiter rateLimiter;
 
     private final ApiErrorHandler apiErrorHandler;
+    private final BatchConfig batchConfig;
+    private final WeatherMetrics weatherMetrics;
+    private final ExecutionConfig executionConfig;
+    private final StoreConfig storeConfig;
+    private final WeatherSubscriptions weatherSubscriptions;
+    private final SubscriptionConfig subscriptionConfig;
+    private final CityCatalog cityCatalog;
+    private final CatalogConfig catalogConfig;
+    private final Scheduler blockingScheduler;
 
     @Autowired
     public CheckWeatherController(CheckWeatherService checkWeatherService,
                                   ApiErrorHandler apiErrorHandler,
                                   ApiKeyValidator apiKeyValidator,
-                                  RateLimiter rateLimiter) {
+                                  RateLimiter rateLimiter,
+                                  BatchConfig batchConfig,
+                                  WeatherMetrics weatherMetrics,
+                                  ExecutionConfig executionConfig,
+                                  StoreConfig storeConfig,
+                                  WeatherSubscriptions weatherSubscriptions,
+                                  SubscriptionConfig subscriptionConfig,
+                                  CityCatalog cityCatalog,
+                                  CatalogConfig catalogConfig,
+                                  @Qualifier("blockingScheduler") Scheduler blockingScheduler) {
         this.checkWeatherService = checkWeatherService;
         this.apiErrorHandler = apiErrorHandler;
         this.apiKeyValidator = apiKeyValidator;
         this.rateLimiter = rateLimiter;
+        this.batchConfig = batchConfig;
+        this.weatherMetrics = weatherMetrics;
+        this.executionConfig = executionConfig;
+        this.storeConfig = storeConfig;
+        this.weatherSubscriptions = weatherSubscriptions;
+        this.subscriptionConfig = subscriptionConfig;
+        this.cityCatalog = cityCatalog;
+        this.catalogConfig = catalogConfig;
+        this.blockingScheduler = blockingScheduler;
 
     }
 
@@ -46,21 +111,201 @@ public class CheckWeatherController {
     public Mono<ResponseEntity<String>> getWeatherDescription(
             @RequestParam @NotBlank(message = "City name is a required parameter")String city,
             @RequestParam(required = false) String country,
-            @RequestParam String apiKey) {
+            @RequestParam String apiKey,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        return checkedResponse(apiKey, () -> conditionalResponse(
+                () -> checkWeatherService.getCachedWeather(city, country, apiKey),
+                () -> checkWeatherService.getWeather(city, country, apiKey),
+                ifNoneMatch, city, country));
+    }
+
+    /**
+     * Weather at a coordinate. Coordinates are snapped to a grid of {@code openweathermap.api.geo.cellSize}
+     * degrees, every request inside one cell is answered from the same cached observation.
+     */
+    @GetMapping(params = {"lat", "lon"})
+    public Mono<ResponseEntity<String>> getWeatherDescriptionAt(
+            @RequestParam("lat") @DecimalMin(value = "-90", message = "Latitude must be between -90 and 90")
+            @DecimalMax(value = "90", message = "Latitude must be between -90 and 90") double latitude,
+            @RequestParam("lon") @DecimalMin(value = "-180", message = "Longitude must be between -180 and 180")
+            @DecimalMax(value = "180", message = "Longitude must be between -180 and 180") double longitude,
+            @RequestParam String apiKey,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
+        return checkedResponse(apiKey, () -> conditionalResponse(
+                () -> checkWeatherService.getCachedWeatherAt(latitude, longitude, apiKey),
+                () -> checkWeatherService.getWeatherAt(latitude, longitude, apiKey),
+                ifNoneMatch, latitude + "," + longitude, null));
+    }
+
+    private Mono<ResponseEntity<String>> checkedResponse(String apiKey, Supplier<Mono<ResponseEntity<String>>> response) {
         // Validate the API key and enforce the rate limit
-        return Mono.fromRunnable(() -> {
-                    apiKeyValidator.validate(apiKey);
-                    rateLimiter.enforceRateLimit(apiKey);
-                })
-                .then(checkWeatherService.getWeatherDescription(city, country, apiKey)
-                        .map(ResponseEntity::ok)
-                        .onErrorResume(error -> apiErrorHandler.handleApiError(error, city, country)))
+        return offloadIfBlocking(Mono.fromCallable(() -> {
+                    weatherMetrics.time(WeatherMetrics.STAGE_KEY_VALIDATION, () -> apiKeyValidator.validate(apiKey));
+                    return weatherMetrics.time(WeatherMetrics.STAGE_RATE_LIMIT, () -> rateLimiter.enforceRateLimit(apiKey));
+                }))
+                .flatMap(remaining -> response.get()
+                        .map(entity -> withRemainingRequests(entity, remaining)))
                 .onErrorResume(InvalidApiKeyException.class, e ->
                         Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                                 .body("Error: Invalid API key provided. Please check your API key and try again.")))
+                .doOnError(RateLimitExceededException.class, e -> weatherMetrics.rateLimitRejected())
                 .onErrorResume(RateLimitExceededException.class, e ->
-                        Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        Mono.just(ApiErrorHandler.tooManyRequests(e)
                                 .body("Error: API rate limit exceeded. Please try again later.")));
     }
+
+    /**
+     * Resolves many locations in one request and streams one NDJSON line per location as soon as it completes.
+     * The API key is validated once for the whole batch, the rate limit is enforced per location and failures
+     * are reported on the line of the location that caused them.
+     */
+    @PostMapping(path = "/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchWeatherResult> getWeatherDescriptions(
+            @RequestBody @Valid BatchWeatherRequest request,
+            @RequestParam String apiKey) {
+
+        List<BatchWeatherRequest.Location> locations = request.getLocations();
+
+        return offloadIfBlocking(Mono.fromRunnable(() -> weatherMetrics.time(WeatherMetrics.STAGE_KEY_VALIDATION, () -> apiKeyValidator.validate(apiKey))))
+                .thenMany(Flux.range(0, locations.size()))
+                .flatMap(index -> resolveBatchItem(index, locations.get(index), apiKey), batchConfig.getConcurrency());
+    }
+
+    /**
+     * Streams weather changes for up to 50 locations as Server-Sent Events, each given as city or city,country.
+     * The API key and the rate limit are checked once when subscribing. Every location sends its current
+     * description first and then an event whenever the description changes. A slow client only gets the latest
+     * description of each location.
+     */
+    @GetMapping(path = "/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<WeatherUpdate>> subscribe(
+            @RequestParam("location") @NotEmpty(message = "At least one location is required")
+            @Size(max = 50, message = "A subscription can contain at most 50 locations") List<String> locations,
+            @RequestParam String apiKey) {
+
+        Flux<ServerSentEvent<WeatherUpdate>> updates = Flux.fromIterable(locations)
+                .distinct()
+                .flatMap(location -> locationUpdates(location, apiKey), locations.size());
+        Flux<ServerSentEvent<WeatherUpdate>> heartbeats = Flux.interval(subscriptionConfig.getHeartbeatInterval())
+                .onBackpressureDrop()
+                .map(tick -> ServerSentEvent.<WeatherUpdate>builder().comment("keep-alive").build());
+
+        return offloadIfBlocking(Mono.fromCallable(() -> {
+                    weatherMetrics.time(WeatherMetrics.STAGE_KEY_VALIDATION, () -> apiKeyValidator.validate(apiKey));
+                    return weatherMetrics.time(WeatherMetrics.STAGE_RATE_LIMIT, () -> rateLimiter.enforceRateLimit(apiKey));
+                }))
+                .doOnError(RateLimitExceededException.class, e -> weatherMetrics.rateLimitRejected())
+                .flatMapMany(remaining -> Flux.merge(updates, heartbeats));
+    }
+
+    /**
+     * Cities of the catalog whose name starts with {@code prefix}, for autocompletion. Answered from memory,
+     * so only the API key is checked and the rate limit is left for the weather lookups.
+     */
+    @GetMapping("/suggest")
+    public Mono<List<CitySuggestion>> suggest(
+            @RequestParam @NotBlank(message = "Prefix is a required parameter")
+            @Size(max = 100, message = "Prefix can be at most 100 characters") String prefix,
+            @RequestParam(required = false) @Min(value = 1, message = "Limit must be between 1 and 50")
+            @Max(value = 50, message = "Limit must be between 1 and 50") Integer limit,
+            @RequestParam String apiKey) {
+
+        return offloadIfBlocking(Mono.fromCallable(() -> {
+            weatherMetrics.time(WeatherMetrics.STAGE_KEY_VALIDATION, () -> apiKeyValidator.validate(apiKey));
+            return cityCatalog.suggest(prefix, limit == null ? catalogConfig.getSuggestLimit() : limit);
+        }));
+    }
+
+    private Flux<ServerSentEvent<WeatherUpdate>> locationUpdates(String location, String apiKey) {
+        int separator = location.lastIndexOf(',');
+        String city = (separator < 0 ? location : location.substring(0, separator)).trim();
+        String country = separator < 0 ? null : location.substring(separator + 1).trim();
+        return weatherSubscriptions.changes(city, country, apiKey)
+                // Per location, so a slow client drops intermediate descriptions but never a whole location
+                .onBackpressureLatest()
+                .map(result -> ServerSentEvent.builder(WeatherUpdate.of(city, country, result))
+                        .event("weather")
+                        .id(result.etag())
+                        .build());
+    }
+
+    private <T> Mono<T> offloadIfBlocking(Mono<T> checks) {
+        // Requests run on the Netty event loop, which must never wait on the shared rate limit store. Every
+        // endpoint runs its key and rate limit checks through here, so the execution mode applies to all of them
+        boolean offload = executionConfig.offloadsAllChecks() || rateLimiter.isBlocking();
+        return offload ? checks.subscribeOn(blockingScheduler) : checks;
+    }
+
+    private Mono<ResponseEntity<String>> conditionalResponse(Supplier<Optional<WeatherResult>> cachedLookup,
+                                                             Supplier<Mono<WeatherResult>> lookup,
+                                                             String ifNoneMatch, String city, String country) {
+        // Deferred so a location rejected on either path is answered by the same error handler
+        return Mono.defer(() -> {
+                    // A revalidation of a description still in memory is answered without the store or upstream
+                    if (ifNoneMatch != null) {
+                        WeatherResult cached = cachedLookup.get()
+                                .filter(result -> matchesEtag(ifNoneMatch, result.etag()))
+                                .orElse(null);
+                        if (cached != null) {
+                            return Mono.just(withCacheHeaders(ResponseEntity.status(HttpStatus.NOT_MODIFIED), cached).<String>build());
+                        }
+                    }
+                    return lookup.get()
+                            .map(result -> matchesEtag(ifNoneMatch, result.etag())
+                                    ? withCacheHeaders(ResponseEntity.status(HttpStatus.NOT_MODIFIED), result).<String>build()
+                                    : toResponse(result));
+                })
+                .onErrorResume(error -> apiErrorHandler.handleApiError(error, city, country));
+    }
+
+    private ResponseEntity<String> toResponse(WeatherResult result) {
+        ResponseEntity.BodyBuilder response = withCacheHeaders(ResponseEntity.ok(), result);
+        if (result.isStale()) {
+            response.header(DATA_AGE_HEADER, String.valueOf(Math.max(0, result.age().toSeconds())));
+        }
+        return response.body(result.getDescription());
+    }
+
+    private ResponseEntity.BodyBuilder withCacheHeaders(ResponseEntity.BodyBuilder response, WeatherResult result) {
+        // Stale descriptions are already past their TTL, clients have to ask again on the next use
+        Duration maxAge = result.isStale() ? Duration.ZERO : result.remainingTtl(storeConfig.getTtl());
+        return response.eTag(result.etag())
+                .cacheControl(CacheControl.maxAge(maxAge).mustRevalidate());
+    }
+
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        // If-None-Match uses the weak comparison, so a W/ prefix added by a proxy still matches
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(etag));
+    }
+
+    private static <T> ResponseEntity<T> withRemainingRequests(ResponseEntity<T> response, long remaining) {
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(ApiErrorHandler.RATE_LIMIT_REMAINING_HEADER, String.valueOf(remaining))
+                .body(response.getBody());
+    }
+
+    private Mono<BatchWeatherResult> resolveBatchItem(int index, BatchWeatherRequest.Location location, String apiKey) {
+        String city = location.getCity();
+        String country = location.getCountry();
+
+        return offloadIfBlocking(Mono.fromRunnable(() -> weatherMetrics.time(WeatherMetrics.STAGE_RATE_LIMIT, () -> rateLimiter.enforceRateLimit(apiKey))))
+                .then(checkWeatherService.getWeatherDescription(city, country, apiKey))
+                .map(description -> BatchWeatherResult.success(index, city, country, description))
+                .doOnError(RateLimitExceededException.class, e -> weatherMetrics.rateLimitRejected())
+                .onErrorResume(RateLimitExceededException.class, e ->
+                        Mono.just(BatchWeatherResult.failure(index, city, country, HttpStatus.TOO_MANY_REQUESTS.value(),
+                                "Error: API rate limit exceeded. Please try again later.")))
+                .onErrorResume(error -> apiErrorHandler.handleApiError(error, city, country)
+                        .map(response -> BatchWeatherResult.failure(index, city, country,
+                                response.getStatusCode().value(), response.getBody())));
+    }
 }
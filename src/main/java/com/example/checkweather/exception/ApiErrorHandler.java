@@ -1,15 +1,20 @@
 package com.example.checkweather.exception;
 
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeoutException;
 @Component
 public class ApiErrorHandler {
     private static final Logger logger = LoggerFactory.getLogger(ApiErrorHandler.class);
+    public static final String RATE_LIMIT_REMAINING_HEADER = "X-RateLimit-Remaining";
 
     public Mono<ResponseEntity<String>> handleApiError(Throwable error, String city, String country) {
         if (error instanceof WebClientResponseException webEx) {
@@ -23,9 +28,48 @@ public class ApiErrorHandler {
             return Mono.just(ResponseEntity.status(status).body(errorMessage.isEmpty() ? "Error: " + status.getReasonPhrase() : errorMessage));
         }
 
+        if (error instanceof InvalidLocationException) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Error: " + error.getMessage()));
+        }
+
+        if (error instanceof UnknownLocationException) {
+            logger.debug("Unknown location rejected without an upstream call, city: {}, country: {}", city, country);
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body("Error: " + error.getMessage()));
+        }
+
+        if (error instanceof UpstreamUnavailableException) {
+            logger.error("No upstream capacity for city: {}, country: {} - {}", city, country, error.getMessage());
+            return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Service Unavailable"));
+        }
+
+        if (error instanceof RateLimitUnavailableException) {
+            logger.error("Rate limit store unavailable for city: {}, country: {}", city, country, error.getCause());
+            return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Service Unavailable"));
+        }
+
+        if (error instanceof CallNotPermittedException) {
+            logger.warn("Circuit open, failing fast for city: {}, country: {}", city, country);
+            return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Service Unavailable"));
+        }
+
+        if (error instanceof TimeoutException) {
+            logger.error("Upstream timed out for city: {}, country: {}", city, country);
+            return Mono.just(ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body("Error: " + HttpStatus.GATEWAY_TIMEOUT.getReasonPhrase()));
+        }
+
         // Default to 500 if unknown error
         logger.error("Unknown error occurred for city: {}, country: {}", city, country, error);
         return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Service Unavailable"));
     }
-}
 
+    public static ResponseEntity.BodyBuilder tooManyRequests(RateLimitExceededException e) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(RATE_LIMIT_REMAINING_HEADER, "0");
+        if (e.getRetryAfter() != null) {
+            // Retry-After is expressed in whole seconds, round up so clients never retry too early
+            long seconds = (e.getRetryAfter().toMillis() + 999) / 1000;
+            builder.header(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        }
+        return builder;
+    }
+}
@@ -1,13 +1,16 @@
 package com.example.checkweather.exception;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.server.MissingRequestValueException;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
@@ -21,23 +24,49 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(RateLimitExceededException.class)
     public ResponseEntity<String> handleRateLimitExceededException(RateLimitExceededException ex) {
-        return ResponseEntity
-                .status(HttpStatus.TOO_MANY_REQUESTS)
+        return ApiErrorHandler.tooManyRequests(ex)
                 .body("API rate limit exceeded. Please try again later.");
     }
 
-    @ExceptionHandler(MissingServletRequestParameterException.class)
-    public ResponseEntity<Map<String, String>> handleMissingServletRequestParameter(MissingServletRequestParameterException ex) {
+    @ExceptionHandler(RateLimitUnavailableException.class)
+    public ResponseEntity<String> handleRateLimitUnavailableException(RateLimitUnavailableException ex) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body("Service Unavailable");
+    }
+
+    @ExceptionHandler(MissingRequestValueException.class)
+    public ResponseEntity<Map<String, String>> handleMissingRequestValue(MissingRequestValueException ex) {
         Map<String, String> errors = new HashMap<>();
 
         // Check if the missing parameter is 'city'
-        if ("city".equals(ex.getParameterName())) {
+        if ("city".equals(ex.getName())) {
             errors.put("Invalid query", "City name is a required parameter");
         } else {
-            errors.put(ex.getParameterName(), ex.getMessage());
+            // Same wording as the servlet stack's MissingServletRequestParameterException, which clients already parse
+            errors.put(ex.getName(), "Required request parameter '" + ex.getName() + "' for method parameter type "
+                    + ex.getType().getSimpleName() + " is not present");
         }
 
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
     }
-}
 
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<Map<String, String>> handleConstraintViolation(ConstraintViolationException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("Invalid query", ex.getConstraintViolations().stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", ")));
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
+    }
+
+    @ExceptionHandler(InvalidLocationException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidLocation(InvalidLocationException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("Invalid query", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
+    }
+}
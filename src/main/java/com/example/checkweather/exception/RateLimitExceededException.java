@@ -1,7 +1,20 @@
 package com.example.checkweather.exception;
 
+import java.time.Duration;
+
 public class RateLimitExceededException extends RuntimeException {
+    private final Duration retryAfter;
+
     public RateLimitExceededException(String message) {
+        this(message, null);
+    }
+
+    public RateLimitExceededException(String message, Duration retryAfter) {
         super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
     }
 }
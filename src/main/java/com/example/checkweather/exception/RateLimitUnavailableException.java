@@ -0,0 +1,7 @@
+package com.example.checkweather.exception;
+
+public class RateLimitUnavailableException extends RuntimeException {
+    public RateLimitUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.checkweather.exception;
+
+public class UnknownLocationException extends RuntimeException {
+    public UnknownLocationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.checkweather.exception;
+
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+/**
+ * Decides which upstream errors count against the circuit breaker: timeouts, connection failures and 5xx.
+ * 4xx answers (unknown city, rejected key) say nothing about upstream health and are ignored.
+ */
+public class UpstreamFailurePredicate implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable error) {
+        if (error instanceof WebClientResponseException webEx) {
+            return webEx.getStatusCode().is5xxServerError();
+        }
+        return error instanceof TimeoutException || error instanceof WebClientRequestException;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.checkweather.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchWeatherRequest {
+
+    @NotEmpty(message = "At least one location is required")
+    @Size(max = 2000, message = "A batch can contain at most 2000 locations")
+    private List<@Valid Location> locations;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Location {
+        @NotBlank(message = "City name is a required parameter")
+        private String city;
+        private String country;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.checkweather.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchWeatherResult {
+    // Position of the location in the request, results are streamed in completion order
+    private int index;
+    private String city;
+    private String country;
+    private int status;
+    private String description;
+    private String error;
+
+    public static BatchWeatherResult success(int index, String city, String country, String description) {
+        return new BatchWeatherResult(index, city, country, 200, description, null);
+    }
+
+    public static BatchWeatherResult failure(int index, String city, String country, int status, String error) {
+        return new BatchWeatherResult(index, city, country, status, null, error);
+    }
+}
@@ -5,6 +5,8 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
+import java.time.Instant;
+
 @Setter
 @Getter
 @Builder
@@ -29,4 +31,8 @@ public class CheckWeatherData {
     @Column("description")
     private String description;
 
+    // Getter and Setter for fetchedAt
+    @Column("fetched_at")
+    private Instant fetchedAt;
+
 }
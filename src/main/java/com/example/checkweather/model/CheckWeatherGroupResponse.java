@@ -0,0 +1,21 @@
+package com.example.checkweather.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Answer of the OpenWeatherMap group endpoint, one entry per requested city ID.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CheckWeatherGroupResponse {
+
+    @JsonProperty("cnt")
+    private int count;
+
+    @JsonProperty("list")
+    private List<CheckWeatherResponse> list;
+}
@@ -9,6 +9,10 @@ import java.util.List;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class CheckWeatherResponse {
 
+    // OpenWeatherMap city ID, used for group requests once a location has been resolved by name
+    @JsonProperty("id")
+    private Long id;
+
     @JsonProperty("weather")
     private List<Weather> weather;
 
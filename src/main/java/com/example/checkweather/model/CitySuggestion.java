@@ -0,0 +1,13 @@
+package com.example.checkweather.model;
+
+import lombok.Value;
+
+/**
+ * A city of the catalog whose name starts with the requested prefix.
+ */
+@Value
+public class CitySuggestion {
+    long id;
+    String city;
+    String country;
+}
@@ -0,0 +1,55 @@
+package com.example.checkweather.model;
+
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * A weather description together with when it was fetched upstream. Stale results were served
+ * from the store because OpenWeatherMap could not be reached.
+ */
+@Value
+public class WeatherResult {
+    String description;
+    Instant fetchedAt;
+    boolean stale;
+
+    public static WeatherResult fresh(String description, Instant fetchedAt) {
+        return new WeatherResult(description, fetchedAt, false);
+    }
+
+    public static WeatherResult stale(String description, Instant fetchedAt) {
+        return new WeatherResult(description, fetchedAt, true);
+    }
+
+    public Duration age() {
+        return Duration.between(fetchedAt, Instant.now());
+    }
+
+    /**
+     * Time left until the description is due for a refresh, never negative.
+     */
+    public Duration remainingTtl(Duration ttl) {
+        Duration remaining = ttl.minus(age());
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    /**
+     * Strong entity tag, the same description fetched at the same instant always gets the same tag.
+     */
+    public String etag() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(description.getBytes(StandardCharsets.UTF_8));
+            digest.update(fetchedAt.toString().getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
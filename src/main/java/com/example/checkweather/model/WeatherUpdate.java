@@ -0,0 +1,21 @@
+package com.example.checkweather.model;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Data of one subscription event, sent when the description of a location changes.
+ */
+@Value
+public class WeatherUpdate {
+    String city;
+    String country;
+    String description;
+    Instant fetchedAt;
+    boolean stale;
+
+    public static WeatherUpdate of(String city, String country, WeatherResult result) {
+        return new WeatherUpdate(city, country, result.getDescription(), result.getFetchedAt(), result.isStale());
+    }
+}
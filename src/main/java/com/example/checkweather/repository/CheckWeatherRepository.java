@@ -1,9 +1,40 @@
 package com.example.checkweather.repository;
 
 import com.example.checkweather.model.CheckWeatherData;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+
+/**
+ * City and country are stored normalized (see {@link com.example.checkweather.cache.LocationKeys}),
+ * so every lookup is a single probe of the unique (city, country) index.
+ */
 public interface CheckWeatherRepository extends ReactiveCrudRepository<CheckWeatherData, Long> {
+    /**
+     * Matches the source rows {@code s} to the table {@code t} by location and keeps the latest fetch.
+     */
+    String MERGE_ACTIONS = "ON t.city = s.city AND t.country = s.country "
+            + "WHEN MATCHED AND s.fetched_at > t.fetched_at THEN UPDATE SET description = s.description, fetched_at = s.fetched_at "
+            + "WHEN NOT MATCHED THEN INSERT (city, country, description, fetched_at) VALUES (s.city, s.country, s.description, s.fetched_at)";
+
     Mono<CheckWeatherData> findByCityAndCountry(String city, String country);
+
+    Mono<CheckWeatherData> findByCityAndCountryAndFetchedAtAfter(String city, String country, Instant fetchedAfter);
+
+    /**
+     * Inserts or updates the row of the location, unless the stored row was fetched later. Saves run out of
+     * order once write-behind is on, an older description must never replace a newer one.
+     */
+    @Modifying
+    @Query("MERGE INTO check_weather_data t USING (VALUES (CAST(:city AS VARCHAR(100)), CAST(:country AS VARCHAR(100)), " +
+            "CAST(:description AS VARCHAR(255)), CAST(:fetchedAt AS TIMESTAMP WITH TIME ZONE))) " +
+            "AS s(city, country, description, fetched_at) " + MERGE_ACTIONS)
+    Mono<Integer> upsert(String city, String country, String description, Instant fetchedAt);
+
+    @Modifying
+    @Query("DELETE FROM check_weather_data WHERE fetched_at < :cutoff")
+    Mono<Integer> deleteFetchedBefore(Instant cutoff);
 }
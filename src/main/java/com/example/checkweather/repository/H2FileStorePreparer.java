@@ -0,0 +1,83 @@
+package com.example.checkweather.repository;
+
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.h2.api.ErrorCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Runs before the R2DBC pool opens when check_weather_data lives in an H2 file. Opening the file
+ * replays it up to the last complete chunk, which is H2's crash recovery, and SHUTDOWN COMPACT then
+ * rewrites it without the space left by purged rows. A file H2 cannot open is moved aside, because
+ * losing cached weather is better than a pod that never starts.
+ */
+public class H2FileStorePreparer implements ApplicationListener<ApplicationEnvironmentPreparedEvent> {
+    private static final Logger logger = LoggerFactory.getLogger(H2FileStorePreparer.class);
+
+    @Override
+    public void onApplicationEvent(ApplicationEnvironmentPreparedEvent event) {
+        Binder binder = Binder.get(event.getEnvironment());
+        String url = binder.bind("spring.r2dbc.url", String.class).orElse(null);
+        if (url == null || !binder.bind("openweathermap.api.store.compact-on-startup", Boolean.class).orElse(true)) {
+            return;
+        }
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url);
+        if (!"h2".equals(options.getValue(ConnectionFactoryOptions.DRIVER))
+                || !"file".equals(options.getValue(ConnectionFactoryOptions.PROTOCOL))) {
+            return;
+        }
+        String database = String.valueOf(options.getRequiredValue(ConnectionFactoryOptions.DATABASE)).split(";")[0];
+        prepare(database,
+                binder.bind("spring.r2dbc.username", String.class).orElse("sa"),
+                binder.bind("spring.r2dbc.password", String.class).orElse(""));
+    }
+
+    public void prepare(String database, String username, String password) {
+        Path file = Path.of(database + ".mv.db");
+        if (!Files.exists(file)) {
+            return;
+        }
+        long sizeBefore = size(file);
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:file:" + database, username, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN COMPACT");
+            logger.info("Compacted {} from {} to {} bytes", file, sizeBefore, size(file));
+        } catch (SQLException e) {
+            if (e.getErrorCode() == ErrorCode.FILE_CORRUPTED_1 || e.getErrorCode() == ErrorCode.GENERAL_ERROR_1) {
+                quarantine(file, e);
+            } else {
+                // Locked or unreachable files are left alone, the pool will report the problem when it connects
+                logger.warn("Could not compact {}, starting without compaction", file, e);
+            }
+        }
+    }
+
+    private static void quarantine(Path file, SQLException cause) {
+        Path target = file.resolveSibling(file.getFileName() + ".corrupt-" + System.currentTimeMillis());
+        try {
+            Files.move(file, target);
+            logger.error("{} could not be opened and was moved to {}, starting with an empty store", file, target, cause);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not move unreadable store " + file + " aside", e);
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.checkweather.repository;
+
+import com.example.checkweather.actuator.WeatherMetrics;
+import com.example.checkweather.configuration.StoreConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Saves fetched descriptions after the response has been sent. Rows wait in a bounded queue and are written
+ * with one multi-row MERGE per batch, flushed when the batch is full or the flush interval has passed.
+ * {@link #offer} returns false when the queue is full or write-behind is disabled, the caller then writes
+ * the row itself, which slows down exactly the requests that outrun the store. A row never replaces one
+ * fetched later, so queued rows and direct writes may reach the store in any order.
+ */
+@Component
+public class WeatherWriteBehind {
+    private static final Logger logger = LoggerFactory.getLogger(WeatherWriteBehind.class);
+    private static final Duration RETRY_BACKOFF = Duration.ofMillis(100);
+
+    private final DatabaseClient databaseClient;
+    private final StoreConfig storeConfig;
+    private final WeatherMetrics weatherMetrics;
+    private final ArrayBlockingQueue<PendingWrite> queue;
+    private final Sinks.Many<PendingWrite> pending;
+    // Emits are serialized here, so a racing offer waits for the lock instead of spinning on the sink
+    private final ReentrantLock emitLock = new ReentrantLock();
+    private final CountDownLatch drained = new CountDownLatch(1);
+    private Disposable pipeline;
+
+    @Autowired
+    public WeatherWriteBehind(DatabaseClient databaseClient, StoreConfig storeConfig, WeatherMetrics weatherMetrics) {
+        this.databaseClient = databaseClient;
+        this.storeConfig = storeConfig;
+        this.weatherMetrics = weatherMetrics;
+        this.queue = new ArrayBlockingQueue<>(storeConfig.getWriteQueueSize());
+        this.pending = Sinks.many().unicast().onBackpressureBuffer(queue);
+    }
+
+    @PostConstruct
+    public void start() {
+        weatherMetrics.writeQueue(queue);
+        // Fair backpressure leaves rows in the queue while a flush is running, so the queue bound holds
+        pipeline = pending.asFlux()
+                .bufferTimeout(storeConfig.getWriteBatchSize(), storeConfig.getWriteFlushInterval(), true)
+                .concatMap(this::flush, 1)
+                .doFinally(signal -> drained.countDown())
+                .subscribe();
+    }
+
+    public boolean offer(String city, String country, String description, Instant fetchedAt) {
+        if (!storeConfig.isWriteBehind()) {
+            return false;
+        }
+        PendingWrite write = new PendingWrite(city, country, description, fetchedAt);
+        Sinks.EmitResult result;
+        emitLock.lock();
+        try {
+            result = pending.tryEmitNext(write);
+        } finally {
+            emitLock.unlock();
+        }
+        if (result.isFailure()) {
+            return false;
+        }
+        weatherMetrics.storeWrites(WeatherMetrics.WRITE_QUEUED, 1);
+        return true;
+    }
+
+    public int queued() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting rows and waits for the queued ones to be written, before the connection pool closes.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        emitLock.lock();
+        try {
+            pending.tryEmitComplete();
+        } finally {
+            emitLock.unlock();
+        }
+        if (!drained.await(storeConfig.getWriteShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            logger.warn("Write-behind did not drain within {}, {} rows were not saved",
+                    storeConfig.getWriteShutdownTimeout(), queue.size());
+            pipeline.dispose();
+        }
+    }
+
+    private Mono<Void> flush(List<PendingWrite> batch) {
+        // The latest description per location wins, MERGE rejects the same source key twice in one statement
+        Map<String, PendingWrite> latest = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            latest.merge(write.getCity() + ',' + write.getCountry(), write,
+                    (current, next) -> next.getFetchedAt().isAfter(current.getFetchedAt()) ? next : current);
+        }
+        List<PendingWrite> rows = List.copyOf(latest.values());
+        StringBuilder sql = new StringBuilder("MERGE INTO check_weather_data t USING (VALUES ");
+        for (int i = 0; i < rows.size(); i++) {
+            sql.append(i == 0 ? "" : ", ")
+                    .append("(CAST(:city").append(i).append(" AS VARCHAR(100)), CAST(:country").append(i)
+                    .append(" AS VARCHAR(100)), CAST(:description").append(i).append(" AS VARCHAR(255)), CAST(:fetchedAt")
+                    .append(i).append(" AS TIMESTAMP WITH TIME ZONE))");
+        }
+        sql.append(") AS s(city, country, description, fetched_at) ").append(CheckWeatherRepository.MERGE_ACTIONS);
+        DatabaseClient.GenericExecuteSpec statement = databaseClient.sql(sql.toString());
+        for (int i = 0; i < rows.size(); i++) {
+            PendingWrite row = rows.get(i);
+            statement = statement.bind("city" + i, row.getCity())
+                    .bind("country" + i, row.getCountry())
+                    .bind("description" + i, row.getDescription())
+                    .bind("fetchedAt" + i, row.getFetchedAt());
+        }
+        // The MERGE keeps the latest fetch of each row, so running it again after a failure is safe
+        return weatherMetrics.time(WeatherMetrics.STAGE_DB_SAVE, statement.fetch().rowsUpdated())
+                .retryWhen(Retry.backoff(storeConfig.getWriteRetries(), RETRY_BACKOFF))
+                .doOnSuccess(updated -> weatherMetrics.storeBatch(rows.size()))
+                .onErrorResume(error -> {
+                    // The rows are lost to the store: other pods and a restart will not see them, the memory
+                    // cache of this pod still answers until they expire and the next fetch saves them again
+                    logger.error("Write-behind flush of {} rows failed after {} retries, the rows are dropped",
+                            rows.size(), storeConfig.getWriteRetries(), error);
+                    weatherMetrics.storeWrites(WeatherMetrics.WRITE_FAILED, rows.size());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    @Value
+    private static class PendingWrite {
+        String city;
+        String country;
+        String description;
+        Instant fetchedAt;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.checkweather.service;
+
+import com.example.checkweather.cache.HotListStore;
+import com.example.checkweather.cache.HotLocationTracker;
+import com.example.checkweather.configuration.WarmupConfig;
+import com.example.checkweather.model.WeatherResult;
+import com.example.checkweather.utils.UpstreamKeyPool;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Preloads the persisted hot list on startup and keeps the current hot locations warm afterwards.
+ * Application runners complete before Spring Boot reports readiness, so a new pod only receives
+ * traffic once the preload has finished or {@code startupTimeout} has passed.
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheWarmer implements ApplicationRunner {
+    private final CheckWeatherService checkWeatherService;
+    private final HotLocationTracker hotLocationTracker;
+    private final HotListStore hotListStore;
+    private final UpstreamKeyPool upstreamKeyPool;
+    private final WarmupConfig warmupConfig;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmer.class);
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!warmupConfig.isEnabled()) {
+            return;
+        }
+        if (!isActive()) {
+            logger.warn("Warm-up is enabled but no upstream keys are configured, hot locations will not be preloaded or refreshed");
+        }
+        List<String> hotKeys;
+        try {
+            hotKeys = hotListStore.load();
+        } catch (RuntimeException e) {
+            logger.warn("Could not load the hot location list, starting cold", e);
+            return;
+        }
+        hotLocationTracker.seed(hotKeys);
+        if (hotKeys.isEmpty() || !canWarm()) {
+            return;
+        }
+        logger.info("Preloading {} hot locations", hotKeys.size());
+        Long warmed = warm(hotKeys)
+                .count()
+                .timeout(warmupConfig.getStartupTimeout())
+                .onErrorResume(TimeoutException.class, e -> {
+                    logger.warn("Preload did not finish within {}, continuing", warmupConfig.getStartupTimeout());
+                    return Mono.empty();
+                })
+                .block();
+        logger.info("Preloaded {} of {} hot locations", warmed == null ? "some" : warmed, hotKeys.size());
+    }
+
+    @Scheduled(initialDelayString = "${openweathermap.api.warmup.refresh-interval:PT1M}",
+            fixedDelayString = "${openweathermap.api.warmup.refresh-interval:PT1M}")
+    public void refreshHotLocations() {
+        if (!warmupConfig.isEnabled() || !canWarm() || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        warm(hotLocationTracker.hotKeys())
+                .count()
+                .doFinally(signal -> refreshing.set(false))
+                .subscribe(refreshed -> logger.debug("Refreshed {} hot locations", refreshed),
+                        error -> logger.warn("Hot location refresh failed", error));
+    }
+
+    @PreDestroy
+    @Scheduled(initialDelayString = "${openweathermap.api.warmup.persist-interval:PT5M}",
+            fixedDelayString = "${openweathermap.api.warmup.persist-interval:PT5M}")
+    public void persistHotList() {
+        if (!warmupConfig.isEnabled()) {
+            return;
+        }
+        try {
+            hotListStore.save(hotLocationTracker.hotKeys());
+        } catch (RuntimeException e) {
+            logger.warn("Could not persist the hot location list", e);
+        }
+        hotLocationTracker.decay();
+    }
+
+    /**
+     * Whether preload and refresh actually call upstream, reported at /actuator/info.
+     */
+    public boolean isActive() {
+        return warmupConfig.isEnabled() && upstreamKeyPool.isEnabled();
+    }
+
+    private Flux<WeatherResult> warm(List<String> keys) {
+        int requestsPerSecond = Math.max(1, warmupConfig.getRequestsPerSecond());
+        return Flux.fromIterable(keys)
+                .filter(key -> key.lastIndexOf(',') > 0)
+                // Spread the calls so warming never eats the upstream quota meant for live traffic
+                .delayElements(Duration.ofNanos(1_000_000_000L / requestsPerSecond))
+                .flatMap(key -> checkWeatherService.warm(key)
+                        .onErrorResume(error -> {
+                            logger.debug("Could not warm {}", key, error);
+                            return Mono.empty();
+                        }), requestsPerSecond);
+    }
+
+    private boolean canWarm() {
+        // Without a key pool every upstream call needs a client's key, which warm-up does not have
+        if (!upstreamKeyPool.isEnabled()) {
+            logger.debug("No upstream keys configured, skipping warm-up");
+            return false;
+        }
+        return true;
+    }
+}
@@ -1,17 +1,42 @@
 package com.example.checkweather.service;
 
-import com.example.checkweather.model.CheckWeatherData;
+import com.example.checkweather.actuator.WeatherMetrics;
+import com.example.checkweather.cache.CachedWeather;
+import com.example.checkweather.cache.CityCatalog;
+import com.example.checkweather.cache.GridCells;
+import com.example.checkweather.cache.HotLocationTracker;
+import com.example.checkweather.cache.LocationKey;
+import com.example.checkweather.cache.LocationKeys;
+import com.example.checkweather.cache.NegativeCache;
+import com.example.checkweather.cache.WeatherCache;
+import com.example.checkweather.configuration.StoreConfig;
+import com.example.checkweather.exception.UnknownLocationException;
+import com.example.checkweather.exception.UpstreamFailurePredicate;
+import com.example.checkweather.exception.UpstreamUnavailableException;
 import com.example.checkweather.model.CheckWeatherResponse;
+import com.example.checkweather.model.WeatherResult;
 import com.example.checkweather.repository.CheckWeatherRepository;
+import com.example.checkweather.repository.WeatherWriteBehind;
+import com.example.checkweather.utils.SingleFlight;
+import com.example.checkweather.utils.UpstreamKeyPool;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @RequiredArgsConstructor
@@ -19,39 +44,282 @@ public class CheckWeatherService {
     private final CheckWeatherRepository weatherRepository;
     @Qualifier("weatherApiWebClient")
     private final WebClient webClient;
+    private final WeatherCache weatherCache;
+    private final StoreConfig storeConfig;
+    private final UpstreamKeyPool upstreamKeyPool;
+    private final UpstreamResilience upstreamResilience;
+    private final WeatherMetrics weatherMetrics;
+    private final HotLocationTracker hotLocationTracker;
+    private final LocationKeys locationKeys;
+    private final WeatherWriteBehind weatherWriteBehind;
+    private final UpstreamBatcher upstreamBatcher;
+    private final GridCells gridCells;
+    private final CityCatalog cityCatalog;
+    private final NegativeCache negativeCache;
+    private static final Duration SHARED_FETCH_TIMEOUT = Duration.ofSeconds(30);
+    // One upstream call and one save per (city, country), shared by all concurrent misses
+    private final SingleFlight<String, CachedWeather> inFlightFetches = new SingleFlight<>(SHARED_FETCH_TIMEOUT);
+    // Keys with a background refresh pending after a stale answer
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+    private static final UpstreamFailurePredicate UPSTREAM_FAILURE = new UpstreamFailurePredicate();
     private static final Logger logger = LoggerFactory.getLogger(CheckWeatherService.class);
 
 
-    @Cacheable(cacheNames = "weather", key = "#city + ',' + #country ")
     public Mono<String> getWeatherDescription(String city, String country, String clientApiKey) {
-        return weatherRepository.findByCityAndCountry(city, country)
-                .flatMap(data -> Mono.just(data.getDescription()))
-                .switchIfEmpty(fetchAndCacheWeatherData(city, country, clientApiKey));
+        return getWeather(city, country, clientApiKey).map(WeatherResult::getDescription);
+    }
+
+    public Mono<WeatherResult> getWeather(String city, String country, String clientApiKey) {
+        return Mono.defer(() -> {
+            LocationKey location = locationKeys.of(city, country);
+            if (cityCatalog.rejects(location)) {
+                // A misspelled city would only cost upstream quota for a 404
+                return Mono.error(new UnknownLocationException("Unknown location " + location.query()));
+            }
+            // Only answered locations count, a rejected or unknown name must never make it onto the hot list
+            return lookup(location, clientApiKey).doOnNext(result -> hotLocationTracker.record(location.getKey()));
+        });
+    }
+
+    /**
+     * Weather at a coordinate, looked up through the grid cell that contains it. With neighbour sharing on,
+     * a cached observation of an adjacent cell is served instead of fetching the cell itself.
+     */
+    public Mono<WeatherResult> getWeatherAt(double latitude, double longitude, String clientApiKey) {
+        return Mono.defer(() -> {
+            LocationKey cell = cellFor(latitude, longitude);
+            return lookup(cell, clientApiKey).doOnNext(result -> {
+                gridCells.markCached(cell);
+                hotLocationTracker.record(cell.getKey());
+            });
+        });
+    }
+
+    /**
+     * Answers from memory only, without touching the store or OpenWeatherMap. Used to decide conditional
+     * requests cheaply, a miss means the caller has to go through {@link #getWeather}.
+     */
+    public Optional<WeatherResult> getCachedWeather(String city, String country, String clientApiKey) {
+        return getCachedWeather(locationKeys.of(city, country), clientApiKey);
+    }
+
+    /**
+     * Memory only variant of {@link #getWeatherAt}, see {@link #getCachedWeather(String, String, String)}.
+     */
+    public Optional<WeatherResult> getCachedWeatherAt(double latitude, double longitude, String clientApiKey) {
+        return getCachedWeather(cellFor(latitude, longitude), clientApiKey);
+    }
+
+    private Optional<WeatherResult> getCachedWeather(LocationKey location, String clientApiKey) {
+        CachedWeather cached = weatherCache.get(location.getKey());
+        if (cached == null) {
+            return Optional.empty();
+        }
+        hotLocationTracker.record(location.getKey());
+        weatherMetrics.cacheResult(WeatherMetrics.LAYER_MEMORY, true);
+        refreshAheadIfDue(location, cached, clientApiKey);
+        return Optional.of(WeatherResult.fresh(cached.getDescription(), cached.getFetchedAt()));
+    }
+
+    /**
+     * Loads a location into memory, or refreshes it when it is close to expiry, with the service's own
+     * upstream keys. Completes empty when the entry is still fresh. Used by {@link CacheWarmer}.
+     */
+    public Mono<WeatherResult> warm(String city, String country) {
+        return Mono.defer(() -> warm(locationKeys.of(city, country)));
+    }
+
+    /**
+     * {@link #warm(String, String)} for a key as recorded by the {@link HotLocationTracker}, either
+     * {@code city,country} or a grid cell.
+     */
+    public Mono<WeatherResult> warm(String key) {
+        return Mono.defer(() -> {
+            if (GridCells.isCell(key)) {
+                LocationKey cell = gridCells.parse(key);
+                return warm(cell).doOnNext(result -> gridCells.markCached(cell));
+            }
+            // LocationKeys rejects commas in either part, so the split gives back the exact city and country
+            int separator = key.indexOf(',');
+            return warm(key.substring(0, separator), key.substring(separator + 1));
+        });
+    }
+
+    private Mono<WeatherResult> warm(LocationKey location) {
+        String key = location.getKey();
+        CachedWeather cached = weatherCache.get(key);
+        if (cached == null) {
+            return lookup(location, null);
+        }
+        if (!weatherCache.tryStartRefresh(key, cached)) {
+            return Mono.empty();
+        }
+        return fetchCoalesced(location, null)
+                .map(weather -> WeatherResult.fresh(weather.getDescription(), weather.getFetchedAt()))
+                .doFinally(signal -> weatherCache.finishRefresh(key));
+    }
+
+    private LocationKey cellFor(double latitude, double longitude) {
+        LocationKey neighbour = gridCells.nearestCachedNeighbour(latitude, longitude);
+        return neighbour != null ? neighbour : gridCells.cellOf(latitude, longitude);
+    }
+
+    private Mono<WeatherResult> lookup(LocationKey location, String clientApiKey) {
+        // Memory, then a fresh row in the store, then one coalesced upstream call
+        String key = location.getKey();
+        CachedWeather cached = weatherMetrics.time(WeatherMetrics.STAGE_CACHE_LOOKUP, () -> weatherCache.get(key));
+        weatherMetrics.cacheResult(WeatherMetrics.LAYER_MEMORY, cached != null);
+        if (cached != null) {
+            refreshAheadIfDue(location, cached, clientApiKey);
+            return Mono.just(WeatherResult.fresh(cached.getDescription(), cached.getFetchedAt()));
+        }
+        // A recent 404 is answered again without the store or upstream, cities in the catalog are never rejected
+        if (negativeCache.isMissing(key) && !cityCatalog.contains(location)) {
+            return Mono.error(new UnknownLocationException("Unknown location " + location.query()));
+        }
+        Instant freshSince = Instant.now().minus(storeConfig.getTtl());
+        return weatherMetrics.time(WeatherMetrics.STAGE_DB_QUERY, weatherRepository.findByCityAndCountryAndFetchedAtAfter(
+                        location.getCity(), location.getCountry(), freshSince))
+                .doOnSuccess(data -> weatherMetrics.cacheResult(WeatherMetrics.LAYER_STORE, data != null))
+                .map(data -> new CachedWeather(data.getDescription(), data.getFetchedAt()))
+                .doOnNext(weather -> weatherCache.put(key, weather))
+                .switchIfEmpty(Mono.defer(() -> fetchCoalesced(location, clientApiKey)))
+                .map(weather -> WeatherResult.fresh(weather.getDescription(), weather.getFetchedAt()))
+                .onErrorResume(CheckWeatherService::isUpstreamOutage,
+                        error -> serveStale(location, clientApiKey, error));
     }
 
-    private Mono<String> fetchAndCacheWeatherData(String city, String country, String clientApiKey) {
+    private Mono<WeatherResult> serveStale(LocationKey location, String clientApiKey, Throwable error) {
+        // Upstream is failing, the last stored description beats an error as long as it is not too old
+        Instant staleSince = Instant.now().minus(storeConfig.getMaxStale());
+        return weatherRepository.findByCityAndCountryAndFetchedAtAfter(location.getCity(), location.getCountry(), staleSince)
+                .doOnNext(data -> {
+                    logger.warn("Upstream failed ({}), serving stored data from {} for location: {}",
+                            error.toString(), data.getFetchedAt(), location);
+                    revalidateInBackground(location, clientApiKey);
+                })
+                .map(data -> WeatherResult.stale(data.getDescription(), data.getFetchedAt()))
+                .switchIfEmpty(Mono.error(error));
+    }
+
+    private void revalidateInBackground(LocationKey location, String clientApiKey) {
+        String key = location.getKey();
+        if (!revalidating.add(key)) {
+            return;
+        }
+        Mono.delay(storeConfig.getRevalidateDelay())
+                .then(Mono.defer(() -> fetchCoalesced(location, clientApiKey)))
+                .doFinally(signal -> revalidating.remove(key))
+                .subscribe(weather -> { },
+                        error -> logger.debug("Revalidation failed for location: {}", location, error));
+    }
+
+    private static boolean isUpstreamOutage(Throwable error) {
+        return error instanceof CallNotPermittedException
+                || error instanceof UpstreamUnavailableException
+                || UPSTREAM_FAILURE.test(error);
+    }
+
+    private void refreshAheadIfDue(LocationKey location, CachedWeather cached, String clientApiKey) {
+        String key = location.getKey();
+        if (!weatherCache.tryStartRefresh(key, cached)) {
+            return;
+        }
+        logger.debug("Refreshing weather data ahead of expiry for location: {}", location);
+        fetchCoalesced(location, clientApiKey)
+                .doFinally(signal -> weatherCache.finishRefresh(key))
+                .subscribe(weather -> { },
+                        error -> logger.warn("Refresh-ahead failed for location: {}", location, error));
+    }
+
+    private Mono<CachedWeather> fetchCoalesced(LocationKey location, String clientApiKey) {
+        return inFlightFetches.execute(location.getKey(), () -> fetchAndCacheWeatherData(location, clientApiKey));
+    }
+
+    private Mono<CachedWeather> fetchAndCacheWeatherData(LocationKey location, String clientApiKey) {
+        // Locations with a known city ID join a group request, the others are fetched by name
+        return upstreamResilience.execute(() -> {
+                    OptionalLong cityId = upstreamBatcher.cityId(location);
+                    return cityId.isEmpty()
+                            ? fetchByName(location, clientApiKey)
+                            : upstreamBatcher.fetch(cityId.getAsLong()).switchIfEmpty(Mono.defer(() -> fetchByName(location, clientApiKey)));
+                })
+                // A rejected pool key is quarantined, so one retry goes out with a different key
+                .retryWhen(Retry.max(1).filter(error -> upstreamKeyPool.isEnabled()
+                        && error instanceof WebClientResponseException e && isKeyRejected(e)))
+                .onErrorMap(Exceptions::isRetryExhausted, Throwable::getCause)
+                // A rejection of the service's own key is not the client's fault, fail like an exhausted pool
+                .onErrorMap(error -> upstreamKeyPool.isEnabled() && error instanceof WebClientResponseException e && isKeyRejected(e),
+                        error -> new UpstreamUnavailableException("Upstream rejected the pooled API keys with "
+                                + ((WebClientResponseException) error).getStatusCode().value(), error))
+                .doOnError(WebClientResponseException.NotFound.class, e -> {
+                    // Only names are remembered, a cell key must never be poisoned through a crafted request
+                    if (!location.isCell()) {
+                        negativeCache.record(location.getKey());
+                    }
+                })
+                .flatMap(description -> {
+                    // Queue the description for the store and keep it in memory for later hits
+                    CachedWeather weather = new CachedWeather(description, Instant.now());
+                    return saveWeatherData(location, description, weather.getFetchedAt())
+                            .then(Mono.fromRunnable(() -> weatherCache.put(location.getKey(), weather)))
+                            .thenReturn(weather);
+                });
+    }
+
+    private Mono<String> fetchByName(LocationKey location, String clientApiKey) {
+        // Use a key from the service's own pool when configured, otherwise forward the client's key
+        String upstreamKey = upstreamKeyPool.isEnabled() ? upstreamKeyPool.acquire() : clientApiKey;
+        return fetchDescription(location, upstreamKey)
+                .doOnSuccess(description -> upstreamKeyPool.reportSuccess(upstreamKey))
+                .doOnError(WebClientResponseException.class, e -> {
+                    if (isKeyRejected(e)) {
+                        upstreamKeyPool.reportRejected(upstreamKey, e.getStatusCode().value());
+                    }
+                });
+    }
+
+    private Mono<String> fetchDescription(LocationKey location, String upstreamKey) {
         // Asynchronously fetch weather data from the downstream API
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .queryParam("q", String.format("%s,%s", city, country))
-                        .queryParam("appid", clientApiKey)
+        Mono<String> call = webClient.get()
+                .uri(uriBuilder -> (location.isCell()
+                                ? uriBuilder.queryParam("lat", location.getLatitude()).queryParam("lon", location.getLongitude())
+                                : uriBuilder.queryParam("q", location.query()))
+                        .queryParam("appid", upstreamKey)
                         .build())
                 .retrieve()
                 .bodyToMono(CheckWeatherResponse.class)  // Directly map to WeatherApiResponse
-                .flatMap(weatherResponse -> {
-                    // Extract the description
-                    String description = weatherResponse.getWeather().stream()
-                            .findFirst()
-                            .map(CheckWeatherResponse.Weather::getDescription)
-                            .orElse("No description available");
-
-                    // Save the description asynchronously in H2
-                    return saveWeatherData(city, country, description).thenReturn(description);
-                });
+                // A cell is answered by its nearest station, whose city ID would not describe the cell itself
+                .doOnNext(weatherResponse -> {
+                    if (!location.isCell()) {
+                        upstreamBatcher.rememberCityId(location, weatherResponse.getId());
+                    }
+                })
+                .map(weatherResponse -> weatherResponse.getWeather().stream()
+                        .findFirst()
+                        .map(CheckWeatherResponse.Weather::getDescription)
+                        .orElse("No description available"));
+        return weatherMetrics.time(WeatherMetrics.STAGE_UPSTREAM_CALL, call)
+                .doOnSuccess(description -> weatherMetrics.upstreamResponse("200"))
+                .doOnError(error -> weatherMetrics.upstreamResponse(error instanceof WebClientResponseException e
+                        ? String.valueOf(e.getStatusCode().value()) : "io_error"))
+                .doOnCancel(() -> weatherMetrics.upstreamResponse("cancelled"));
     }
-    @Transactional
-    private Mono<Void> saveWeatherData(String city, String country, String description) {
-        logger.debug("Saving weather data for city: {}, country: {}, description: {}", city, country, description);
-        return weatherRepository.save(CheckWeatherData.builder().city(city).country(country).description(description).build()).then();
+
+    static boolean isKeyRejected(WebClientResponseException e) {
+        int status = e.getStatusCode().value();
+        return status == 401 || status == 429;
+    }
+
+    private Mono<Void> saveWeatherData(LocationKey location, String description, Instant fetchedAt) {
+        logger.debug("Saving weather data for location: {}, description: {}", location, description);
+        if (weatherWriteBehind.offer(location.getCity(), location.getCountry(), description, fetchedAt)) {
+            return Mono.empty();
+        }
+        // Write-behind is off or its queue is full, upsert on the unique (city, country) index on the request path
+        return weatherMetrics.time(WeatherMetrics.STAGE_DB_SAVE,
+                        weatherRepository.upsert(location.getCity(), location.getCountry(), description, fetchedAt))
+                .doOnSuccess(updated -> weatherMetrics.storeWrites(WeatherMetrics.WRITE_DIRECT, 1))
+                .then();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,255 @@
+package com.example.checkweather.service;
+
+import com.example.checkweather.actuator.WeatherMetrics;
+import com.example.checkweather.cache.CityCatalog;
+import com.example.checkweather.cache.LocationKey;
+import com.example.checkweather.configuration.UpstreamBatchConfig;
+import com.example.checkweather.configuration.WebClientConfig;
+import com.example.checkweather.exception.UpstreamUnavailableException;
+import com.example.checkweather.model.CheckWeatherGroupResponse;
+import com.example.checkweather.model.CheckWeatherResponse;
+import com.example.checkweather.utils.UpstreamKeyPool;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Collects upstream fetches of locations with a known OpenWeatherMap city ID for up to {@code maxWait} or
+ * {@code maxSize} IDs, sends them as one group request with a key from the pool and hands each waiting
+ * caller its own description. City IDs come from the {@link CityCatalog} or are learned from the by-name
+ * calls, so the first fetch of a location outside the catalog always goes out on its own. Callers of the same
+ * ID share one slot of a batch, at most {@code maxQueued} IDs wait for a batch and a fetch fails fast with
+ * {@link UpstreamUnavailableException} beyond that.
+ */
+@Component
+public class UpstreamBatcher {
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamBatcher.class);
+    // Concurrent emits are retried this long before the fetch fails, instead of spinning without bound
+    private static final long EMIT_SPIN_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final WebClient webClient;
+    private final WebClientConfig webClientConfig;
+    private final UpstreamBatchConfig upstreamBatchConfig;
+    private final UpstreamKeyPool upstreamKeyPool;
+    private final WeatherMetrics weatherMetrics;
+    private final CityCatalog cityCatalog;
+    private final Cache<String, Long> cityIds;
+    private final Sinks.Many<PendingFetch> pending;
+    // IDs waiting for a batch, so later callers of an ID join the fetch already queued
+    private final Map<Long, PendingFetch> queued = new ConcurrentHashMap<>();
+    private URI groupUri;
+    private Disposable pipeline;
+
+    @Autowired
+    public UpstreamBatcher(@Qualifier("weatherApiWebClient") WebClient webClient,
+                           WebClientConfig webClientConfig,
+                           UpstreamBatchConfig upstreamBatchConfig,
+                           UpstreamKeyPool upstreamKeyPool,
+                           WeatherMetrics weatherMetrics,
+                           CityCatalog cityCatalog) {
+        this.webClient = webClient;
+        this.webClientConfig = webClientConfig;
+        this.upstreamBatchConfig = upstreamBatchConfig;
+        this.upstreamKeyPool = upstreamKeyPool;
+        this.weatherMetrics = weatherMetrics;
+        this.cityCatalog = cityCatalog;
+        this.cityIds = Caffeine.newBuilder().maximumSize(upstreamBatchConfig.getKnownIds()).build();
+        this.pending = Sinks.many().unicast().onBackpressureBuffer(Queues.<PendingFetch>get(upstreamBatchConfig.getMaxQueued()).get());
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        // .../data/2.5/weather becomes .../data/2.5/group
+        URI baseUri = URI.create(webClientConfig.getBaseUrl());
+        if (baseUri.getPath().isEmpty()) {
+            baseUri = baseUri.resolve("/");
+        }
+        groupUri = baseUri.resolve(upstreamBatchConfig.getPath());
+        pipeline = pending.asFlux()
+                .bufferTimeout(upstreamBatchConfig.getMaxSize(), upstreamBatchConfig.getMaxWait(), true)
+                .flatMap(this::sendGroup, upstreamBatchConfig.getConcurrency())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (pipeline != null) {
+            pipeline.dispose();
+        }
+    }
+
+    public boolean isEnabled() {
+        return upstreamBatchConfig.isEnabled() && upstreamKeyPool.isEnabled();
+    }
+
+    /**
+     * City ID learned for the location, empty when group requests are off or the location was never
+     * fetched by name.
+     */
+    public OptionalLong cityId(LocationKey location) {
+        if (!isEnabled()) {
+            return OptionalLong.empty();
+        }
+        Long cityId = cityIds.getIfPresent(location.getKey());
+        return cityId == null ? cityCatalog.cityId(location) : OptionalLong.of(cityId);
+    }
+
+    public void rememberCityId(LocationKey location, Long cityId) {
+        if (cityId != null && isEnabled()) {
+            cityIds.put(location.getKey(), cityId);
+        }
+    }
+
+    /**
+     * Description of the city from the next group request. Completes empty when the group answer has no entry
+     * for the ID, the caller then falls back to a request by name. An ID is dropped from its batch once every
+     * caller waiting for it has cancelled.
+     */
+    public Mono<String> fetch(long cityId) {
+        return Mono.defer(() -> {
+            PendingFetch[] created = new PendingFetch[1];
+            PendingFetch fetch = queued.compute(cityId, (id, current) -> {
+                PendingFetch joined = current != null ? current : (created[0] = new PendingFetch(id));
+                joined.waiters++;
+                return joined;
+            });
+            if (fetch == created[0]) {
+                Sinks.EmitResult emitted = emit(fetch);
+                if (emitted.isFailure()) {
+                    queued.remove(cityId, fetch);
+                    fetch.result.tryEmitError(emitted == Sinks.EmitResult.FAIL_OVERFLOW
+                            ? new UpstreamUnavailableException("Too many fetches waiting for a group request.")
+                            : new IllegalStateException("Upstream batching is not running: " + emitted));
+                }
+            }
+            return fetch.result.asMono().doOnCancel(() -> leave(fetch));
+        });
+    }
+
+    private Sinks.EmitResult emit(PendingFetch fetch) {
+        long deadline = System.nanoTime() + EMIT_SPIN_NANOS;
+        Sinks.EmitResult emitted;
+        while ((emitted = pending.tryEmitNext(fetch)) == Sinks.EmitResult.FAIL_NON_SERIALIZED && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        return emitted;
+    }
+
+    private void leave(PendingFetch fetch) {
+        // Waiter counts only change inside compute, so a caller never joins a fetch that is being dropped
+        queued.compute(fetch.cityId, (id, current) -> {
+            if (--fetch.waiters == 0) {
+                fetch.cancelled = true;
+                return current == fetch ? null : current;
+            }
+            return current;
+        });
+    }
+
+    private Mono<Void> sendGroup(List<PendingFetch> batch) {
+        // From here on the IDs are on their way, later callers queue a new fetch
+        batch.forEach(fetch -> queued.remove(fetch.cityId, fetch));
+        List<PendingFetch> live = batch.stream().filter(fetch -> !fetch.cancelled).toList();
+        if (live.isEmpty()) {
+            return Mono.empty();
+        }
+        String ids = live.stream()
+                .map(fetch -> String.valueOf(fetch.cityId))
+                .collect(Collectors.joining(","));
+        return Mono.fromCallable(upstreamKeyPool::acquire)
+                .flatMap(upstreamKey -> {
+                    URI uri = UriComponentsBuilder.fromUri(groupUri)
+                            .queryParam("id", ids)
+                            .queryParam("appid", upstreamKey)
+                            .build()
+                            .toUri();
+                    Mono<CheckWeatherGroupResponse> call = webClient.get()
+                            .uri(uri)
+                            .retrieve()
+                            .bodyToMono(CheckWeatherGroupResponse.class);
+                    return weatherMetrics.time(WeatherMetrics.STAGE_UPSTREAM_CALL, call)
+                            .doOnSuccess(response -> {
+                                upstreamKeyPool.reportSuccess(upstreamKey);
+                                weatherMetrics.upstreamResponse("200");
+                            })
+                            .doOnError(error -> {
+                                if (error instanceof WebClientResponseException e) {
+                                    if (CheckWeatherService.isKeyRejected(e)) {
+                                        upstreamKeyPool.reportRejected(upstreamKey, e.getStatusCode().value());
+                                    }
+                                    weatherMetrics.upstreamResponse(String.valueOf(e.getStatusCode().value()));
+                                } else {
+                                    weatherMetrics.upstreamResponse("io_error");
+                                }
+                            });
+                })
+                .doOnNext(response -> {
+                    weatherMetrics.upstreamBatch(live.size());
+                    deliver(live, response);
+                })
+                .doOnError(error -> {
+                    logger.debug("Group request for city IDs {} failed", ids, error);
+                    live.forEach(fetch -> fetch.result.tryEmitError(error));
+                })
+                // Every caller has its answer, the pipeline itself keeps running
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    private static void deliver(List<PendingFetch> batch, CheckWeatherGroupResponse response) {
+        Map<Long, String> descriptions = new HashMap<>();
+        if (response != null && response.getList() != null) {
+            for (CheckWeatherResponse city : response.getList()) {
+                descriptions.put(city.getId(), city.getWeather().stream()
+                        .findFirst()
+                        .map(CheckWeatherResponse.Weather::getDescription)
+                        .orElse("No description available"));
+            }
+        }
+        for (PendingFetch fetch : batch) {
+            String description = descriptions.get(fetch.cityId);
+            if (description == null) {
+                fetch.result.tryEmitEmpty();
+            } else {
+                fetch.result.tryEmitValue(description);
+            }
+        }
+    }
+
+    private static final class PendingFetch {
+        private final long cityId;
+        private final Sinks.One<String> result = Sinks.one();
+        // Callers waiting for this ID, only changed inside compute on the queued map
+        private int waiters;
+        private volatile boolean cancelled;
+
+        private PendingFetch(long cityId) {
+            this.cityId = cityId;
+        }
+    }
+}
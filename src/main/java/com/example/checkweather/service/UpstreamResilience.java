@@ -0,0 +1,92 @@
+package com.example.checkweather.service;
+
+import com.example.checkweather.configuration.ResilienceConfig;
+import com.example.checkweather.utils.LatencyTracker;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Wraps every upstream call with a circuit breaker, a timeout derived from recent latency percentiles
+ * and, when enabled, a hedged second request once the first is slower than the configured percentile.
+ */
+@Component
+public class UpstreamResilience {
+    public static final String CIRCUIT_BREAKER = "openweathermap";
+
+    private final ResilienceConfig resilienceConfig;
+    private final CircuitBreaker circuitBreaker;
+    private final LatencyTracker latencyTracker = new LatencyTracker(1024, Duration.ofSeconds(1));
+
+    @Autowired
+    public UpstreamResilience(ResilienceConfig resilienceConfig, CircuitBreakerRegistry circuitBreakerRegistry) {
+        this.resilienceConfig = resilienceConfig;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER);
+    }
+
+    public <T> Mono<T> execute(Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+                    Duration hedgeDelay = hedgeDelay();
+                    if (hedgeDelay == null) {
+                        return timed(call);
+                    }
+                    // The first attempt with a value wins and the other one is cancelled, a fast error never beats a slower answer
+                    return Mono.firstWithValue(timed(call), Mono.delay(hedgeDelay).then(timed(call)))
+                            .onErrorResume(NoSuchElementException.class, e -> {
+                                // Both attempts failed, surface the first error as an unhedged call would
+                                List<Throwable> errors = Exceptions.unwrapMultiple(e.getCause());
+                                return errors.isEmpty() ? Mono.empty() : Mono.error(errors.get(0));
+                            });
+                })
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    public Duration currentTimeout() {
+        ResilienceConfig.AdaptiveTimeout adaptive = resilienceConfig.getAdaptiveTimeout();
+        if (!adaptive.isEnabled() || latencyTracker.sampleCount() < resilienceConfig.getMinSamples()) {
+            return adaptive.getMax();
+        }
+        long observed = (long) (latencyTracker.percentile(adaptive.getPercentile()).toNanos() * adaptive.getMultiplier());
+        return Duration.ofNanos(Math.max(adaptive.getMin().toNanos(), Math.min(adaptive.getMax().toNanos(), observed)));
+    }
+
+    /**
+     * Delay after which a hedged request is sent, or null when hedging is off or there is not enough data yet.
+     */
+    public Duration hedgeDelay() {
+        ResilienceConfig.Hedge hedge = resilienceConfig.getHedge();
+        if (!hedge.isEnabled() || latencyTracker.sampleCount() < resilienceConfig.getMinSamples()) {
+            return null;
+        }
+        Duration observed = latencyTracker.percentile(hedge.getPercentile());
+        return observed.compareTo(hedge.getMinDelay()) > 0 ? observed : hedge.getMinDelay();
+    }
+
+    public CircuitBreaker.State circuitState() {
+        return circuitBreaker.getState();
+    }
+
+    private <T> Mono<T> timed(Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            Duration timeout = currentTimeout();
+            return call.get()
+                    .timeout(timeout)
+                    .doOnSuccess(value -> latencyTracker.record(Duration.ofNanos(System.nanoTime() - start)))
+                    // Timeouts count at the timeout value, otherwise a step up in latency would never be sampled and
+                    // the timeout could not grow past it
+                    .doOnError(error -> latencyTracker.record(error instanceof TimeoutException
+                            ? timeout : Duration.ofNanos(System.nanoTime() - start)));
+        });
+    }
+}
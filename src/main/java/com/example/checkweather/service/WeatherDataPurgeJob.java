@@ -0,0 +1,30 @@
+package com.example.checkweather.service;
+
+import com.example.checkweather.configuration.StoreConfig;
+import com.example.checkweather.repository.CheckWeatherRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Deletes rows past the retention period so check_weather_data stays small.
+ */
+@Component
+@RequiredArgsConstructor
+public class WeatherDataPurgeJob {
+    private final CheckWeatherRepository weatherRepository;
+    private final StoreConfig storeConfig;
+    private static final Logger logger = LoggerFactory.getLogger(WeatherDataPurgeJob.class);
+
+    @Scheduled(fixedDelayString = "${openweathermap.api.store.purge-interval:PT10M}")
+    public void purgeExpiredWeatherData() {
+        Instant cutoff = Instant.now().minus(storeConfig.getRetention());
+        weatherRepository.deleteFetchedBefore(cutoff)
+                .subscribe(deleted -> logger.debug("Purged {} weather rows fetched before {}", deleted, cutoff),
+                        error -> logger.warn("Failed to purge expired weather data", error));
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.checkweather.service;
+
+import com.example.checkweather.cache.LocationKeys;
+import com.example.checkweather.configuration.SubscriptionConfig;
+import com.example.checkweather.model.WeatherResult;
+import com.example.checkweather.utils.UpstreamKeyPool;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.ConnectableFlux;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One polling stream per subscribed location, shared by every subscriber of that location. Each stream looks
+ * the location up through {@link CheckWeatherService} every refresh interval, so memory hits, coalescing and
+ * stale answers work as for requests, and only passes on descriptions that differ from the previous one.
+ * Without an upstream key pool every lookup is billed to a client's own key, so streams are then only shared
+ * by subscribers with the same key.
+ */
+@Component
+@RequiredArgsConstructor
+public class WeatherSubscriptions {
+    private final CheckWeatherService checkWeatherService;
+    private final SubscriptionConfig subscriptionConfig;
+    private final LocationKeys locationKeys;
+    private final UpstreamKeyPool upstreamKeyPool;
+    private final Map<String, Stream> streams = new ConcurrentHashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(WeatherSubscriptions.class);
+
+    /**
+     * Current description first, then every change. New subscribers of a running stream get the latest
+     * description right away, the stream stops when its last subscriber cancels.
+     */
+    public Flux<WeatherResult> changes(String city, String country, String clientApiKey) {
+        String locationKey = locationKeys.of(city, country).getKey();
+        String key = upstreamKeyPool.isEnabled() ? locationKey : locationKey + '|' + clientApiKey;
+        return Flux.defer(() -> {
+            // Subscriber counts only change inside compute, so a stream is never stopped while one joins it
+            Stream stream = streams.compute(key, (k, current) -> {
+                Stream joined = current != null ? current : start(city, country, clientApiKey);
+                joined.subscribers++;
+                return joined;
+            });
+            return stream.updates.doFinally(signal -> leave(key, stream));
+        });
+    }
+
+    public int activeStreams() {
+        return streams.size();
+    }
+
+    private Stream start(String city, String country, String clientApiKey) {
+        ConnectableFlux<WeatherResult> updates = Flux.interval(Duration.ZERO, subscriptionConfig.getRefreshInterval())
+                // A lookup slower than the interval skips ticks instead of queueing them
+                .onBackpressureDrop()
+                .concatMap(tick -> checkWeatherService.getWeather(city, country, clientApiKey)
+                        .onErrorResume(error -> {
+                            logger.debug("Subscription lookup failed for city: {}, country: {}", city, country, error);
+                            return Mono.empty();
+                        }), 1)
+                .distinctUntilChanged(WeatherResult::getDescription)
+                .replay(1);
+        return new Stream(updates, updates.connect());
+    }
+
+    private void leave(String key, Stream stream) {
+        streams.computeIfPresent(key, (k, current) -> {
+            if (current != stream || --current.subscribers > 0) {
+                return current;
+            }
+            current.connection.dispose();
+            return null;
+        });
+    }
+
+    private static final class Stream {
+        private final Flux<WeatherResult> updates;
+        private final Disposable connection;
+        // Guarded by the map entry, only read and written inside compute
+        private int subscribers;
+
+        private Stream(Flux<WeatherResult> updates, Disposable connection) {
+            this.updates = updates;
+            this.connection = connection;
+        }
+    }
+}
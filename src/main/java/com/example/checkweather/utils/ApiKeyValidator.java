@@ -2,17 +2,45 @@ package com.example.checkweather.utils;
 
 import com.example.checkweather.configuration.ApiKeyConfig;
 import com.example.checkweather.exception.InvalidApiKeyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks client API keys against SHA-256 hashes of the configured keys. The hashes live in an immutable
+ * map that is replaced as a whole when the keys file changes, so a request sees either the old or the new
+ * key set and never waits on a reload. Presented keys are hashed on every check and never stored.
+ */
 @Component
 public class ApiKeyValidator {
-    private final List<String> validApiKeys;
+    private static final String HASH_PREFIX = "sha256:";
+    private static final Logger logger = LoggerFactory.getLogger(ApiKeyValidator.class);
+
+    private final ApiKeyConfig apiKeyConfig;
+    private final AtomicReference<KeySet> keySet = new AtomicReference<>();
+    private volatile FileTime keysFileModified;
 
     @Autowired
     public ApiKeyValidator(ApiKeyConfig apiKeyConfig) {
-        this.validApiKeys = apiKeyConfig.getKeys(); // Retrieve the valid API keys from ApiKeyConfig
+        this.apiKeyConfig = apiKeyConfig;
+        this.keySet.set(load());
     }
 
     public void validate(String apiKey) {
@@ -20,8 +48,108 @@ public class ApiKeyValidator {
             throw new InvalidApiKeyException("Missing API key.");
         }
 
-        if (!validApiKeys.contains(apiKey)) {
+        if (!keySet.get().contains(apiKey)) {
             throw new InvalidApiKeyException("Invalid API key.");
         }
     }
+
+    public int size() {
+        return keySet.get().hashes.size();
+    }
+
+    /**
+     * Re-reads the keys file when its modification time changed. ConfigMap updates replace the file through a
+     * symlink swap, which shows up here as a new modification time.
+     */
+    @Scheduled(fixedDelayString = "${openweathermap.api.keys-reload-interval:PT30S}")
+    public void reloadIfChanged() {
+        String keysFile = apiKeyConfig.getKeysFile();
+        if (keysFile == null || keysFile.isBlank()) {
+            return;
+        }
+        try {
+            FileTime modified = Files.getLastModifiedTime(Path.of(keysFile));
+            if (modified.equals(keysFileModified)) {
+                return;
+            }
+        } catch (IOException e) {
+            logger.warn("Could not check API keys file {}, keeping the current {} keys", keysFile, size(), e);
+            return;
+        }
+        reload();
+    }
+
+    public void reload() {
+        try {
+            KeySet loaded = load();
+            keySet.set(loaded);
+            logger.info("Loaded {} API keys", loaded.hashes.size());
+        } catch (IllegalStateException e) {
+            // A half written or unreadable file must not lock every client out
+            logger.warn("Could not reload API keys, keeping the current {} keys", size(), e);
+        }
+    }
+
+    private KeySet load() {
+        List<String> entries = new ArrayList<>();
+        if (apiKeyConfig.getKeys() != null) {
+            entries.addAll(apiKeyConfig.getKeys());
+        }
+        String keysFile = apiKeyConfig.getKeysFile();
+        FileTime modified = null;
+        if (keysFile != null && !keysFile.isBlank()) {
+            Path path = Path.of(keysFile);
+            try {
+                modified = Files.getLastModifiedTime(path);
+                entries.addAll(Files.readAllLines(path, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read API keys file " + keysFile, e);
+            }
+        }
+        Map<ByteBuffer, byte[]> hashes = new HashMap<>();
+        for (String entry : entries) {
+            String trimmed = entry == null ? "" : entry.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            byte[] hash = trimmed.startsWith(HASH_PREFIX) ? parseHash(trimmed) : sha256(trimmed);
+            hashes.put(ByteBuffer.wrap(hash), hash);
+        }
+        keysFileModified = modified;
+        return new KeySet(Map.copyOf(hashes));
+    }
+
+    private static byte[] parseHash(String entry) {
+        try {
+            byte[] hash = HexFormat.of().parseHex(entry.substring(HASH_PREFIX.length()));
+            if (hash.length == 32) {
+                return hash;
+            }
+        } catch (IllegalArgumentException e) {
+            // Reported below together with the wrong length case
+        }
+        throw new IllegalStateException("API key entry " + entry + " is not a SHA-256 hash");
+    }
+
+    private static byte[] sha256(String apiKey) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(apiKey.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * One generation of keys, swapped as a whole on reload.
+     */
+    private record KeySet(Map<ByteBuffer, byte[]> hashes) {
+
+        boolean contains(String apiKey) {
+            // The map is indexed by the hash of the presented key, which the caller cannot steer,
+            // and the match itself is confirmed with a constant-time comparison
+            byte[] presented = sha256(apiKey);
+            byte[] stored = hashes.get(ByteBuffer.wrap(presented));
+            return stored != null && MessageDigest.isEqual(stored, presented);
+        }
+    }
 }
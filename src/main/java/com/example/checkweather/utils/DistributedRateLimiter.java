@@ -0,0 +1,132 @@
+package com.example.checkweather.utils;
+
+import com.example.checkweather.configuration.RateLimitConfig;
+import com.example.checkweather.exception.RateLimitExceededException;
+import com.example.checkweather.exception.RateLimitUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Cluster-wide fixed-window rate limiter. Windows are aligned on wall-clock time so every replica
+ * agrees on them, and each replica leases small batches of tokens from the shared {@link RateLimitStore}
+ * and spends them locally, so only one request per batch pays the network round trip. Once the shared
+ * window is exhausted, further requests of that window are rejected without asking the store again.
+ * Unlike the token bucket of {@link LocalRateLimiter} nothing refills within a window, so a client may
+ * spend up to twice its limit across a window boundary.
+ */
+public class DistributedRateLimiter implements RateLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(DistributedRateLimiter.class);
+    // At most half of a window's tokens sits unused in a single replica's lease
+    private static final int LEASE_FRACTION = 2;
+
+    private final RateLimitConfig rateLimitConfig;
+    private final RateLimitStore rateLimitStore;
+    private final LongSupplier clock;
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+    public DistributedRateLimiter(RateLimitConfig rateLimitConfig, RateLimitStore rateLimitStore) {
+        this(rateLimitConfig, rateLimitStore, System::currentTimeMillis);
+    }
+
+    public DistributedRateLimiter(RateLimitConfig rateLimitConfig, RateLimitStore rateLimitStore, LongSupplier clock) {
+        this.rateLimitConfig = rateLimitConfig;
+        this.rateLimitStore = rateLimitStore;
+        this.clock = clock;
+    }
+
+    @Override
+    public boolean isBlocking() {
+        // Renewing a lease is a synchronous call to the store, a round trip unless the store is in-process
+        return rateLimitStore.isBlocking();
+    }
+
+    @Override
+    public long enforceRateLimit(String clientApiKey) {
+        RateLimitConfig.Plan plan = rateLimitConfig.planFor(clientApiKey);
+        long periodMillis = plan.getPeriod().toMillis();
+        long now = clock.getAsLong();
+        long window = now / periodMillis;
+        Lease lease = leases.computeIfAbsent(clientApiKey, k -> new Lease());
+
+        // Only requests for the same key contend here, and only while a new batch is being leased. A lock
+        // instead of a monitor, so a virtual thread waiting on the store does not pin its carrier thread.
+        lease.lock.lock();
+        try {
+            if (lease.window != window) {
+                lease.window = window;
+                lease.tokens = 0;
+                lease.exhausted = false;
+            }
+            if (lease.tokens == 0 && !lease.exhausted) {
+                TokenLease granted = leaseFromStore(clientApiKey + ':' + window, plan);
+                if (granted == null) {
+                    // Failing open: the store is down, admit the request against the last known remainder
+                    return lease.unleased;
+                }
+                lease.tokens = granted.getGranted();
+                lease.unleased = granted.getRemaining();
+                lease.exhausted = lease.tokens == 0;
+            }
+            if (lease.exhausted) {
+                throw new RateLimitExceededException("Rate limit exceeded for this API key.",
+                        Duration.ofMillis((window + 1) * periodMillis - now));
+            }
+            lease.tokens--;
+            return lease.tokens + lease.unleased;
+        } finally {
+            lease.lock.unlock();
+        }
+    }
+
+    /**
+     * Drops leases from past windows; their unused tokens cannot be spent any more. Expired store counters
+     * are dropped at the same time.
+     */
+    @Scheduled(fixedDelayString = "${openweathermap.api.rate-limit.eviction-interval:PT1M}")
+    public void evictExpiredLeases() {
+        long now = clock.getAsLong();
+        leases.entrySet().removeIf(entry ->
+                entry.getValue().window < now / rateLimitConfig.planFor(entry.getKey()).getPeriod().toMillis());
+        rateLimitStore.evictExpired();
+    }
+
+    public int trackedKeys() {
+        return leases.size();
+    }
+
+    /**
+     * Leases a batch from the store, or returns null when the store failed and the limiter fails open.
+     */
+    private TokenLease leaseFromStore(String windowKey, RateLimitConfig.Plan plan) {
+        try {
+            return rateLimitStore.lease(windowKey, leaseSize(plan.getLimit()), plan.getLimit(), plan.getPeriod());
+        } catch (RuntimeException e) {
+            if (rateLimitConfig.isFailOpen()) {
+                logger.warn("Rate limit store unavailable, admitting the request: {}", e.getMessage());
+                return null;
+            }
+            throw new RateLimitUnavailableException("Rate limit store unavailable", e);
+        }
+    }
+
+    private int leaseSize(int limit) {
+        return Math.max(1, Math.min(rateLimitConfig.getLeaseSize(), limit / LEASE_FRACTION));
+    }
+
+    private static final class Lease {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long window = -1;
+        private long tokens;
+        // The shared window had no tokens left, rejections need no round trip until the window ends
+        private boolean exhausted;
+        // Tokens left in the shared window when this lease was taken
+        private long unleased;
+    }
+}
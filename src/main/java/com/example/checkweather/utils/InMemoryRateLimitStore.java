@@ -0,0 +1,66 @@
+package com.example.checkweather.utils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process {@link RateLimitStore} with the same semantics as the Redis store. It stands in for the
+ * shared store in tests and single-replica deployments.
+ */
+public class InMemoryRateLimitStore implements RateLimitStore {
+    private final Map<String, WindowCounter> counters = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+
+    public InMemoryRateLimitStore() {
+        this(System::currentTimeMillis);
+    }
+
+    public InMemoryRateLimitStore(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public TokenLease lease(String windowKey, int requested, int limit, Duration window) {
+        long now = clock.getAsLong();
+        WindowCounter counter = counters.computeIfAbsent(windowKey, k -> new WindowCounter(now + window.toMillis()));
+
+        while (true) {
+            long used = counter.used.get();
+            long granted = Math.max(0, Math.min(requested, limit - used));
+            if (counter.used.compareAndSet(used, used + granted)) {
+                return new TokenLease(granted, Math.max(0, limit - used - granted));
+            }
+        }
+    }
+
+    /**
+     * Window keys carry the window number, so an expired counter is never leased from again and is only
+     * dropped here, off the request path.
+     */
+    @Override
+    public void evictExpired() {
+        long now = clock.getAsLong();
+        counters.values().removeIf(counter -> counter.expiresAt <= now);
+    }
+
+    public int trackedCounters() {
+        return counters.size();
+    }
+
+    @Override
+    public boolean isBlocking() {
+        return false;
+    }
+
+    private static final class WindowCounter {
+        private final AtomicLong used = new AtomicLong();
+        private final long expiresAt;
+
+        private WindowCounter(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.checkweather.utils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the most recent latency samples in a lock-free ring buffer and answers percentile queries
+ * from a sorted snapshot that is rebuilt at most once per {@code snapshotInterval}.
+ */
+public class LatencyTracker {
+    private final AtomicLongArray samples;
+    private final AtomicLong recorded = new AtomicLong();
+    private final long snapshotIntervalNanos;
+    private volatile Snapshot snapshot;
+
+    public LatencyTracker(int capacity, Duration snapshotInterval) {
+        this.samples = new AtomicLongArray(capacity);
+        this.snapshotIntervalNanos = snapshotInterval.toNanos();
+        this.snapshot = new Snapshot(new long[0], System.nanoTime() - snapshotIntervalNanos);
+    }
+
+    public void record(Duration latency) {
+        long index = recorded.getAndIncrement();
+        samples.set((int) (index % samples.length()), latency.toNanos());
+    }
+
+    public long sampleCount() {
+        return Math.min(recorded.get(), samples.length());
+    }
+
+    public Duration percentile(double percentile) {
+        long[] sorted = currentSnapshot().sorted;
+        if (sorted.length == 0) {
+            return Duration.ZERO;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return Duration.ofNanos(sorted[Math.max(0, Math.min(index, sorted.length - 1))]);
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        long now = System.nanoTime();
+        if (now - current.takenAt < snapshotIntervalNanos) {
+            return current;
+        }
+        int count = (int) sampleCount();
+        long[] copy = new long[count];
+        for (int i = 0; i < count; i++) {
+            copy[i] = samples.get(i);
+        }
+        Arrays.sort(copy);
+        Snapshot rebuilt = new Snapshot(copy, now);
+        snapshot = rebuilt;
+        return rebuilt;
+    }
+
+    private static final class Snapshot {
+        private final long[] sorted;
+        private final long takenAt;
+
+        private Snapshot(long[] sorted, long takenAt) {
+            this.sorted = sorted;
+            this.takenAt = takenAt;
+        }
+    }
+}
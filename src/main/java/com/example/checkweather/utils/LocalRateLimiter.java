@@ -0,0 +1,98 @@
+package com.example.checkweather.utils;
+
+import com.example.checkweather.configuration.RateLimitConfig;
+import com.example.checkweather.exception.RateLimitExceededException;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Per API key token bucket implemented as GCRA: the whole bucket state is one "theoretical
+ * arrival time" in {@link System#nanoTime()} units, updated with a CAS loop, so checks are
+ * lock-free and a bucket that has fully refilled carries no information and can be evicted.
+ * Limits are enforced per instance, use {@link DistributedRateLimiter} when running several replicas.
+ */
+public class LocalRateLimiter implements RateLimiter {
+    // Arrival time of a bucket that was evicted and must not be charged any more
+    private static final long RETIRED = Long.MIN_VALUE;
+    private final RateLimitConfig rateLimitConfig;
+    private final LongSupplier nanoClock;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public LocalRateLimiter(RateLimitConfig rateLimitConfig) {
+        this(rateLimitConfig, System::nanoTime);
+    }
+
+    public LocalRateLimiter(RateLimitConfig rateLimitConfig, LongSupplier nanoClock) {
+        this.rateLimitConfig = rateLimitConfig;
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public long enforceRateLimit(String clientApiKey) {
+        Bucket bucket = buckets.computeIfAbsent(clientApiKey, this::newBucket);
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long tat = bucket.tat.get();
+            if (tat == RETIRED) {
+                // Evicted since it was looked up, a charge here would be lost, so charge the key's current bucket
+                Thread.onSpinWait();
+                bucket = buckets.computeIfAbsent(clientApiKey, this::newBucket);
+                continue;
+            }
+            long newTat = Math.max(tat, now) + bucket.interval;
+            long backlog = newTat - now;
+
+            if (backlog > bucket.burst) {
+                throw new RateLimitExceededException("Rate limit exceeded for this API key.",
+                        Duration.ofNanos(backlog - bucket.burst));
+            }
+            if (bucket.tat.compareAndSet(tat, newTat)) {
+                return (bucket.burst - backlog) / bucket.interval;
+            }
+        }
+    }
+
+    /**
+     * Drops buckets that have refilled completely; recreating them later yields the same state.
+     * A bucket is retired with a CAS on its arrival time before it is removed, so it either loses to a
+     * concurrent charge and stays, or the charge sees it retired and moves on to the key's new bucket.
+     */
+    @Scheduled(fixedDelayString = "${openweathermap.api.rate-limit.eviction-interval:PT1M}")
+    public void evictIdleBuckets() {
+        for (String clientApiKey : buckets.keySet()) {
+            buckets.computeIfPresent(clientApiKey, (key, bucket) -> {
+                long tat = bucket.tat.get();
+                boolean idle = tat != RETIRED && tat - nanoClock.getAsLong() <= 0;
+                return idle && bucket.tat.compareAndSet(tat, RETIRED) ? null : bucket;
+            });
+        }
+    }
+
+    public int trackedKeys() {
+        return buckets.size();
+    }
+
+    private Bucket newBucket(String clientApiKey) {
+        RateLimitConfig.Plan plan = rateLimitConfig.planFor(clientApiKey);
+        long interval = Math.max(1, plan.getPeriod().toNanos() / plan.getLimit());
+        return new Bucket(interval, interval * plan.getLimit(), nanoClock.getAsLong());
+    }
+
+    private static final class Bucket {
+        // Nanos between two tokens and the full bucket expressed as a backlog of nanos
+        private final long interval;
+        private final long burst;
+        private final AtomicLong tat;
+
+        private Bucket(long interval, long burst, long now) {
+            this.interval = interval;
+            this.burst = burst;
+            this.tat = new AtomicLong(now);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.checkweather.utils;
+
+import java.time.Duration;
+
+/**
+ * Shared counter store behind {@link DistributedRateLimiter}. Every replica leases tokens from the
+ * same per-key window counter, so the limit holds for the whole cluster.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Atomically takes up to {@code requested} tokens from the counter {@code windowKey} without letting its
+     * total exceed {@code limit}. The counter expires once {@code window} has elapsed.
+     */
+    TokenLease lease(String windowKey, int requested, int limit, Duration window);
+
+    /**
+     * Drops counters of past windows. Stores that expire counters themselves, like Redis, need nothing here.
+     */
+    default void evictExpired() {
+    }
+
+    /**
+     * Whether a lease may wait on the network. Shared stores are remote, so this is true unless overridden.
+     */
+    default boolean isBlocking() {
+        return true;
+    }
+}
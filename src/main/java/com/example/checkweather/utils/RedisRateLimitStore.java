@@ -0,0 +1,45 @@
+package com.example.checkweather.utils;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * {@link RateLimitStore} shared by all replicas. The read-grant-expire sequence runs as one Lua script,
+ * so concurrent leases from different pods can never hand out more than the limit.
+ */
+public class RedisRateLimitStore implements RateLimitStore {
+    private static final String KEY_PREFIX = "ratelimit:";
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> LEASE_SCRIPT = new DefaultRedisScript<>("""
+            local used = tonumber(redis.call('GET', KEYS[1]) or '0')
+            local granted = math.max(0, math.min(tonumber(ARGV[1]), tonumber(ARGV[2]) - used))
+            if granted > 0 then
+                redis.call('INCRBY', KEYS[1], granted)
+            end
+            if redis.call('PTTL', KEYS[1]) < 0 then
+                redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            end
+            return {granted, math.max(0, tonumber(ARGV[2]) - used - granted)}
+            """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisRateLimitStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public TokenLease lease(String windowKey, int requested, int limit, Duration window) {
+        List<?> result = redisTemplate.execute(LEASE_SCRIPT, List.of(KEY_PREFIX + windowKey),
+                String.valueOf(requested), String.valueOf(limit), String.valueOf(window.toMillis()));
+        if (result == null || result.size() < 2) {
+            throw new IllegalStateException("Unexpected rate limit lease result from Redis: " + result);
+        }
+        return new TokenLease(((Number) result.get(0)).longValue(), ((Number) result.get(1)).longValue());
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.checkweather.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of strings that grows instead of degrading: once a stage holds its expected number of keys a new
+ * stage with twice the capacity and half the false positive rate is added, so the combined false positive rate
+ * stays below the configured one however many keys arrive. Thread safe, adds and lookups never block.
+ */
+public class ScalableBloomFilter {
+    private static final double TIGHTENING = 0.5;
+    private static final int GROWTH = 2;
+
+    private final List<Stage> stages = new CopyOnWriteArrayList<>();
+
+    public ScalableBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1 || !(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("Expected insertions must be positive and the false positive rate within (0, 1)");
+        }
+        // The rates of the stages form a geometric series, starting at rate * (1 - r) keeps its sum below rate
+        stages.add(new Stage(expectedInsertions, falsePositiveRate * (1 - TIGHTENING)));
+    }
+
+    public void put(String key) {
+        long[] hashes = hashes(key);
+        Stage last = stages.get(stages.size() - 1);
+        last.put(hashes);
+        // Exactly one caller sees the count reach the capacity, so every stage adds at most one successor
+        if (last.count.incrementAndGet() == last.capacity) {
+            stages.add(new Stage(last.capacity * GROWTH, last.falsePositiveRate * TIGHTENING));
+        }
+    }
+
+    public boolean mightContain(String key) {
+        long[] hashes = hashes(key);
+        for (Stage stage : stages) {
+            if (stage.mightContain(hashes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * False positive rate for a key never added, estimated from the share of bits set in every stage.
+     */
+    public double expectedFalsePositiveRate() {
+        double allNegative = 1;
+        for (Stage stage : stages) {
+            allNegative *= 1 - Math.pow((double) stage.bitsSet.get() / stage.bits, stage.hashFunctions);
+        }
+        return 1 - allNegative;
+    }
+
+    public long approximateCount() {
+        return stages.stream().mapToLong(stage -> stage.count.get()).sum();
+    }
+
+    public long bitSize() {
+        return stages.stream().mapToLong(stage -> stage.bits).sum();
+    }
+
+    private static long[] hashes(String key) {
+        // Two independent 64 bit hashes, the k indexes of a stage are h1 + i * h2 (Kirsch and Mitzenmacher)
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        long h1 = mix(h);
+        return new long[] {h1, mix(h1 ^ 0x9e3779b97f4a7c15L) | 1};
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static final class Stage {
+        final long capacity;
+        final double falsePositiveRate;
+        final long bits;
+        final int hashFunctions;
+        final AtomicLongArray words;
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong bitsSet = new AtomicLong();
+
+        Stage(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) / 64);
+            this.bits = wordCount * 64L;
+            this.hashFunctions = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+            this.words = new AtomicLongArray(wordCount);
+        }
+
+        void put(long[] hashes) {
+            for (int i = 0; i < hashFunctions; i++) {
+                long index = Math.floorMod(hashes[0] + i * hashes[1], bits);
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                long current;
+                do {
+                    current = words.get(word);
+                    if ((current & mask) != 0) {
+                        break;
+                    }
+                } while (!words.compareAndSet(word, current, current | mask));
+                if ((current & mask) == 0) {
+                    bitsSet.incrementAndGet();
+                }
+            }
+        }
+
+        boolean mightContain(long[] hashes) {
+            for (int i = 0; i < hashFunctions; i++) {
+                long index = Math.floorMod(hashes[0] + i * hashes[1], bits);
+                if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
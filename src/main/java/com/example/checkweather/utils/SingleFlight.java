@@ -0,0 +1,48 @@
+package com.example.checkweather.utils;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent calls for the same key: the first caller starts the work and
+ * every caller arriving while it is in flight shares its result or error.
+ * The shared call is subscribed independently of its callers, so a caller cancelling or
+ * timing out never cancels the work for the others; it is bounded by {@code maxDuration}.
+ */
+public class SingleFlight<K, V> {
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Duration maxDuration;
+
+    public SingleFlight(Duration maxDuration) {
+        this.maxDuration = maxDuration;
+    }
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return Mono.defer(() -> {
+            CompletableFuture<V> created = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+            if (existing != null) {
+                return Mono.fromFuture(existing, true);
+            }
+
+            created.whenComplete((value, error) -> inFlight.remove(key, created));
+            try {
+                call.get()
+                        .timeout(maxDuration)
+                        .subscribe(created::complete, created::completeExceptionally, () -> created.complete(null));
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+            }
+            return Mono.fromFuture(created, true);
+        });
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.checkweather.utils;
+
+import lombok.Value;
+
+@Value
+public class TokenLease {
+    // Tokens handed to the caller by this lease
+    long granted;
+    // Tokens still available in the shared window after this lease
+    long remaining;
+}
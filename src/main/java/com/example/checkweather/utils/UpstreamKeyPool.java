@@ -0,0 +1,164 @@
+package com.example.checkweather.utils;
+
+import com.example.checkweather.configuration.UpstreamKeyConfig;
+import com.example.checkweather.exception.UpstreamUnavailableException;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Pool of OpenWeatherMap keys owned by the service. Every upstream call takes the key with the most
+ * quota left in the current period; keys rejected with 401/429 are quarantined with exponential backoff.
+ */
+@Component
+public class UpstreamKeyPool {
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamKeyPool.class);
+
+    private final UpstreamKeyConfig upstreamKeyConfig;
+    private final LongSupplier clock;
+    private final List<KeyState> keys;
+
+    @Autowired
+    public UpstreamKeyPool(UpstreamKeyConfig upstreamKeyConfig) {
+        this(upstreamKeyConfig, System::currentTimeMillis);
+    }
+
+    public UpstreamKeyPool(UpstreamKeyConfig upstreamKeyConfig, LongSupplier clock) {
+        this.upstreamKeyConfig = upstreamKeyConfig;
+        this.clock = clock;
+        this.keys = upstreamKeyConfig.getKeys().stream().distinct().map(KeyState::new).toList();
+    }
+
+    public boolean isEnabled() {
+        return !keys.isEmpty();
+    }
+
+    /**
+     * Takes one call of quota from the available key with the most quota left.
+     */
+    public String acquire() {
+        while (true) {
+            long now = clock.getAsLong();
+            long window = now / upstreamKeyConfig.getQuotaPeriod().toMillis();
+            KeyState best = null;
+            int bestRemaining = 0;
+            for (KeyState state : keys) {
+                int remaining = state.remaining(window, now);
+                if (remaining > bestRemaining) {
+                    best = state;
+                    bestRemaining = remaining;
+                }
+            }
+            if (best == null) {
+                throw new UpstreamUnavailableException("All upstream API keys are exhausted or quarantined.");
+            }
+            if (best.tryConsume(window)) {
+                return best.key;
+            }
+        }
+    }
+
+    public void reportSuccess(String key) {
+        KeyState state = find(key);
+        if (state != null) {
+            state.strikes.set(0);
+        }
+    }
+
+    /**
+     * Quarantines a key that upstream rejected as unauthorized or over quota.
+     */
+    public void reportRejected(String key, int status) {
+        KeyState state = find(key);
+        if (state == null) {
+            return;
+        }
+        state.rejections.incrementAndGet();
+        int strikes = state.strikes.incrementAndGet();
+        long base = upstreamKeyConfig.getQuarantineBase().toMillis();
+        long backoff = Math.min(upstreamKeyConfig.getQuarantineMax().toMillis(), base << Math.min(strikes - 1, 20));
+        state.quarantinedUntil.set(clock.getAsLong() + backoff);
+        logger.warn("Upstream key {} rejected with status {}, quarantined for {} ms", mask(key), status, backoff);
+    }
+
+    /**
+     * Per key counters, keyed by the masked key so they can be exposed safely.
+     */
+    public Map<String, KeyUsage> usage() {
+        long now = clock.getAsLong();
+        long window = now / upstreamKeyConfig.getQuotaPeriod().toMillis();
+        Map<String, KeyUsage> usage = new LinkedHashMap<>();
+        for (KeyState state : keys) {
+            long quarantinedFor = Math.max(0, state.quarantinedUntil.get() - now);
+            usage.put(mask(state.key), new KeyUsage(state.totalCalls.get(), state.rejections.get(),
+                    state.remaining(window, now), quarantinedFor));
+        }
+        return usage;
+    }
+
+    private KeyState find(String key) {
+        for (KeyState state : keys) {
+            if (state.key.equals(key)) {
+                return state;
+            }
+        }
+        return null;
+    }
+
+    private static String mask(String key) {
+        return key.length() <= 4 ? "****" : "****" + key.substring(key.length() - 4);
+    }
+
+    @Value
+    public static class KeyUsage {
+        long totalCalls;
+        long rejections;
+        int remainingQuota;
+        long quarantinedForMillis;
+    }
+
+    private final class KeyState {
+        private final String key;
+        // Quota window index and calls used in it, packed as window * 2^20 + used in one CAS-updated long
+        private final AtomicLong windowUsage = new AtomicLong();
+        private final AtomicLong quarantinedUntil = new AtomicLong();
+        private final AtomicInteger strikes = new AtomicInteger();
+        private final AtomicLong totalCalls = new AtomicLong();
+        private final AtomicLong rejections = new AtomicLong();
+
+        private KeyState(String key) {
+            this.key = key;
+        }
+
+        private int remaining(long window, long now) {
+            if (quarantinedUntil.get() > now) {
+                return 0;
+            }
+            long packed = windowUsage.get();
+            int used = (packed >>> 20) == window ? (int) (packed & 0xFFFFF) : 0;
+            return Math.max(0, upstreamKeyConfig.getQuotaPerKey() - used);
+        }
+
+        private boolean tryConsume(long window) {
+            long packed = windowUsage.get();
+            int used = (packed >>> 20) == window ? (int) (packed & 0xFFFFF) : 0;
+            if (used >= upstreamKeyConfig.getQuotaPerKey()) {
+                return false;
+            }
+            if (windowUsage.compareAndSet(packed, (window << 20) | (used + 1))) {
+                totalCalls.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -1,6 +1,13 @@
 CREATE TABLE IF NOT EXISTS check_weather_data (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
-    city VARCHAR(100),
-    country VARCHAR(100),
-    description VARCHAR(255)
+    city VARCHAR(100) NOT NULL,
+    country VARCHAR(100) NOT NULL DEFAULT '',
+    description VARCHAR(255),
+    fetched_at TIMESTAMP WITH TIME ZONE NOT NULL
 );
+
+-- One row per normalized location, lookups and upserts go through this index
+CREATE UNIQUE INDEX IF NOT EXISTS ux_check_weather_data_city_country ON check_weather_data (city, country);
+
+-- Lets the purge job find expired rows without scanning the table
+CREATE INDEX IF NOT EXISTS ix_check_weather_data_fetched_at ON check_weather_data (fetched_at);
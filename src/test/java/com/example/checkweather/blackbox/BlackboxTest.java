@@ -22,7 +22,7 @@ public class BlackboxTest {
     private TestRestTemplate rest;
 
     private final String appUrl = "/api/weather?city=London&country=gb&apiKey=test-api-key2";
-    private final String weatherUpstreamApiUrl = "/?q=London,gb&appid=test-api-key2";
+    private final String weatherUpstreamApiUrl = "/?q=london,gb&appid=test-api-key2";
 
     @BeforeAll
     public static void before() {
@@ -38,7 +38,7 @@ public class BlackboxTest {
     public void shouldGetWeatherDescription() {
         wm.resetAll();
         wm.stubFor(get(urlPathEqualTo("/"))
-                .withQueryParam("q", equalTo("London,gb"))
+                .withQueryParam("q", equalTo("london,gb"))
                 .withQueryParam("appid", matching(".*")) // Accept any API key
                 .willReturn(aResponse().withHeader("Content-Type", "application/json")
                         .withBody("""
@@ -1,23 +1,41 @@
 import com.example.checkweather.CheckWeatherApiApplication;
+import com.example.checkweather.controller.CheckWeatherController;
 import com.example.checkweather.exception.InvalidApiKeyException;
 import com.example.checkweather.exception.RateLimitExceededException;
 import com.example.checkweather.service.CheckWeatherService;
 import com.example.checkweather.utils.ApiKeyValidator;
 import com.example.checkweather.utils.RateLimiter;
 import com.example.checkweather.exception.ApiErrorHandler;
+import com.example.checkweather.exception.InvalidLocationException;
+import com.example.checkweather.model.BatchWeatherRequest;
+import com.example.checkweather.model.BatchWeatherResult;
+import com.example.checkweather.model.WeatherResult;
+import com.example.checkweather.model.WeatherUpdate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @ActiveProfiles("test")
@@ -56,8 +74,8 @@ class CheckWeatherComponentTest {
         String apiKey = "validApiKey";
         String weatherDescription = "Sunny";
 
-        when(checkWeatherService.getWeatherDescription(city, null, apiKey))
-                .thenReturn(Mono.just(weatherDescription));
+        when(checkWeatherService.getWeather(city, null, apiKey))
+                .thenReturn(Mono.just(WeatherResult.fresh(weatherDescription, Instant.now())));
 
         webTestClient.get()
                 .uri(uriBuilder -> uriBuilder.path("/api/weather")
@@ -78,8 +96,8 @@ class CheckWeatherComponentTest {
         doThrow(new InvalidApiKeyException("Invalid API Key"))
                 .when(apiKeyValidator).validate(apiKey);
 
-        when(checkWeatherService.getWeatherDescription(city, null, apiKey))
-                .thenReturn(Mono.just(""));
+        when(checkWeatherService.getWeather(city, null, apiKey))
+                .thenReturn(Mono.just(WeatherResult.fresh("", Instant.now())));
 
         webTestClient.get()
                 .uri(uriBuilder -> uriBuilder.path("/api/weather")
@@ -100,8 +118,8 @@ class CheckWeatherComponentTest {
         doThrow(new RateLimitExceededException("Rate limit exceeded"))
                 .when(rateLimiter).enforceRateLimit(apiKey);
 
-        when(checkWeatherService.getWeatherDescription(city, null, apiKey))
-                .thenReturn(Mono.just(""));
+        when(checkWeatherService.getWeather(city, null, apiKey))
+                .thenReturn(Mono.just(WeatherResult.fresh("", Instant.now())));
 
         webTestClient.get()
                 .uri(uriBuilder -> uriBuilder.path("/api/weather")
@@ -114,6 +132,182 @@ class CheckWeatherComponentTest {
                 .expectBody(String.class).isEqualTo("Error: API rate limit exceeded. Please try again later.");
     }
 
+    @Test
+    void testGetWeatherDescription_MissingCity_ReturnsBadRequest() {
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path(API_URL)
+                        .queryParam("apiKey", API_KEY)
+                        .build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$['Invalid query']").isEqualTo("City name is a required parameter");
+    }
+
+    @Test
+    void testGetWeatherDescription_MissingApiKey_ReturnsBadRequestWithTheServletMessage() {
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path(API_URL)
+                        .queryParam("city", CITY)
+                        .build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .json("{\"apiKey\": \"Required request parameter 'apiKey' for method parameter type String is not present\"}", true);
+    }
+
+    @Test
+    void testGetWeatherDescription_StaleResult_ReportsDataAge() {
+        when(checkWeatherService.getWeather(CITY, COUNTRY, API_KEY))
+                .thenReturn(Mono.just(WeatherResult.stale("Cloudy", Instant.now().minusSeconds(90))));
+
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path(API_URL)
+                        .queryParam("city", CITY)
+                        .queryParam("country", COUNTRY)
+                        .queryParam("apiKey", API_KEY)
+                        .build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(CheckWeatherController.DATA_AGE_HEADER,
+                        age -> assertTrue(Long.parseLong(age) >= 90))
+                .expectBody(String.class).isEqualTo("Cloudy");
+    }
+
+    @Test
+    void testGetWeatherDescription_FreshResult_CarriesEtagAndMaxAge() {
+        WeatherResult result = WeatherResult.fresh("Sunny", Instant.now().minusSeconds(60));
+        when(checkWeatherService.getWeather(CITY, COUNTRY, API_KEY)).thenReturn(Mono.just(result));
+
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path(API_URL)
+                        .queryParam("city", CITY)
+                        .queryParam("country", COUNTRY)
+                        .queryParam("apiKey", API_KEY)
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, result.etag())
+                .expectHeader().value(HttpHeaders.CACHE_CONTROL, cacheControl -> {
+                    long maxAge = Long.parseLong(cacheControl.replaceAll(".*max-age=(\\d+).*", "$1"));
+                    assertTrue(maxAge > 0 && maxAge <= 540, cacheControl);
+                });
+    }
+
+    @Test
+    void testGetWeatherDescription_MatchingIfNoneMatch_Returns304WithoutLookup() {
+        WeatherResult result = WeatherResult.fresh("Sunny", Instant.now());
+        when(checkWeatherService.getCachedWeather(CITY, COUNTRY, API_KEY)).thenReturn(Optional.of(result));
+
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path(API_URL)
+                        .queryParam("city", CITY)
+                        .queryParam("country", COUNTRY)
+                        .queryParam("apiKey", API_KEY)
+                        .build())
+                .header(HttpHeaders.IF_NONE_MATCH, result.etag())
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, result.etag())
+                .expectBody().isEmpty();
+
+        verify(checkWeatherService, never()).getWeather(CITY, COUNTRY, API_KEY);
+    }
+
+    @Test
+    void testGetWeatherDescription_InvalidLocation_SameAnswerWithAndWithoutIfNoneMatch() {
+        InvalidLocationException exception = new InvalidLocationException("City names cannot start with @");
+        when(checkWeatherService.getCachedWeather(CITY, COUNTRY, API_KEY)).thenThrow(exception);
+        when(checkWeatherService.getWeather(CITY, COUNTRY, API_KEY)).thenReturn(Mono.error(exception));
+        when(apiErrorHandler.handleApiError(exception, CITY, COUNTRY))
+                .thenReturn(Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Error: " + exception.getMessage())));
+
+        for (String ifNoneMatch : new String[]{"\"abc\"", null}) {
+            webTestClient.get()
+                    .uri(uriBuilder -> uriBuilder.path(API_URL)
+                            .queryParam("city", CITY)
+                            .queryParam("country", COUNTRY)
+                            .queryParam("apiKey", API_KEY)
+                            .build())
+                    .headers(headers -> {
+                        if (ifNoneMatch != null) {
+                            headers.setIfNoneMatch(ifNoneMatch);
+                        }
+                    })
+                    .exchange()
+                    .expectStatus().isBadRequest()
+                    .expectBody(String.class).isEqualTo("Error: City names cannot start with @");
+        }
+    }
+
+    @Test
+    void testGetWeatherDescriptionAt_Coordinates_Success() {
+        when(checkWeatherService.getWeatherAt(51.5072, -0.1276, API_KEY))
+                .thenReturn(Mono.just(WeatherResult.fresh("Light rain", Instant.now())));
+
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path(API_URL)
+                        .queryParam("lat", 51.5072)
+                        .queryParam("lon", -0.1276)
+                        .queryParam("apiKey", API_KEY)
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .expectBody(String.class).isEqualTo("Light rain");
+    }
+
+    @Test
+    void testGetWeatherDescriptionAt_LatitudeOutOfRange_Returns400() {
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path(API_URL)
+                        .queryParam("lat", 91)
+                        .queryParam("lon", 0)
+                        .queryParam("apiKey", API_KEY)
+                        .build())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$['Invalid query']").isEqualTo("Latitude must be between -90 and 90");
+
+        verify(checkWeatherService, never()).getWeatherAt(anyDouble(), anyDouble(), anyString());
+    }
+
+    @Test
+    void testSuggest_ReturnsBundledCatalogCitiesForPrefix() {
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path(API_URL + "/suggest")
+                        .queryParam("prefix", "LON")
+                        .queryParam("apiKey", API_KEY)
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].city").isEqualTo("London")
+                .jsonPath("$[0].country").isEqualTo("CA")
+                .jsonPath("$[1].id").isEqualTo(2643743);
+
+        verifyNoInteractions(checkWeatherService);
+        verify(rateLimiter, never()).enforceRateLimit(anyString());
+    }
+
+    @Test
+    void testSuggest_InvalidApiKey_Returns401() {
+        doThrow(new InvalidApiKeyException("Invalid API Key")).when(apiKeyValidator).validate("invalidApiKey");
+
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path(API_URL + "/suggest")
+                        .queryParam("prefix", "lon")
+                        .queryParam("apiKey", "invalidApiKey")
+                        .build())
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
     @Test
     public void testGetWeatherDescription_ApiError_Returns503ServiceUnavailable() {
         // Mock a WebClientResponseException with a 503 status
@@ -126,7 +320,7 @@ class CheckWeatherComponentTest {
         );
 
         // Mock the CheckWeatherService to throw the exception
-        when(checkWeatherService.getWeatherDescription(CITY, COUNTRY, API_KEY))
+        when(checkWeatherService.getWeather(CITY, COUNTRY, API_KEY))
                 .thenReturn(Mono.error(exception));
 
         // Mock the ApiErrorHandler to handle the exception and return 503
@@ -152,7 +346,7 @@ class CheckWeatherComponentTest {
         Throwable unknownError = new RuntimeException("Unknown error");
 
         // Mock the CheckWeatherService to throw an unknown exception
-        when(checkWeatherService.getWeatherDescription(CITY, COUNTRY, API_KEY))
+        when(checkWeatherService.getWeather(CITY, COUNTRY, API_KEY))
                 .thenReturn(Mono.error(unknownError));
 
         // Mock the ApiErrorHandler to handle the unknown exception and return 503
@@ -171,4 +365,85 @@ class CheckWeatherComponentTest {
                 .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
                 .expectBody(String.class).isEqualTo("Service Unavailable");
     }
+
+    @Test
+    void testGetWeatherDescriptions_Batch_ReportsPartialFailuresPerItem() {
+        String apiKey = "validApiKey";
+        WebClientResponseException notFound = WebClientResponseException.create(
+                HttpStatus.NOT_FOUND.value(), "Not Found", null, null, null);
+
+        when(checkWeatherService.getWeatherDescription("London", "GB", apiKey))
+                .thenReturn(Mono.just("light rain"));
+        when(checkWeatherService.getWeatherDescription("Atlantis", null, apiKey))
+                .thenReturn(Mono.error(notFound));
+        when(apiErrorHandler.handleApiError(notFound, "Atlantis", null))
+                .thenReturn(Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body("city not found")));
+
+        BatchWeatherRequest request = new BatchWeatherRequest(List.of(
+                new BatchWeatherRequest.Location("London", "GB"),
+                new BatchWeatherRequest.Location("Atlantis", null)));
+
+        List<BatchWeatherResult> results = webTestClient.post()
+                .uri(uriBuilder -> uriBuilder.path(API_URL + "/batch")
+                        .queryParam("apiKey", apiKey)
+                        .build())
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(BatchWeatherResult.class)
+                .getResponseBody()
+                .collectSortedList((a, b) -> Integer.compare(a.getIndex(), b.getIndex()))
+                .block();
+
+        assertEquals(2, results.size());
+        assertEquals(200, results.get(0).getStatus());
+        assertEquals("light rain", results.get(0).getDescription());
+        assertEquals(404, results.get(1).getStatus());
+        assertEquals("city not found", results.get(1).getError());
+        verify(rateLimiter, times(2)).enforceRateLimit(apiKey);
+    }
+
+    @Test
+    void testSubscribe_StreamsCurrentDescriptionPerLocation() {
+        when(checkWeatherService.getWeather("London", "GB", API_KEY))
+                .thenReturn(Mono.just(WeatherResult.fresh("light rain", Instant.now())));
+        when(checkWeatherService.getWeather("Paris", null, API_KEY))
+                .thenReturn(Mono.just(WeatherResult.fresh("clear sky", Instant.now())));
+
+        List<WeatherUpdate> updates = webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path(API_URL + "/subscribe")
+                        .queryParam("location", "London,GB", "Paris")
+                        .queryParam("apiKey", API_KEY)
+                        .build())
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<WeatherUpdate>>() { })
+                .getResponseBody()
+                .filter(event -> "weather".equals(event.event()))
+                .map(ServerSentEvent::data)
+                .take(2)
+                .collectSortedList((a, b) -> a.getCity().compareTo(b.getCity()))
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(2, updates.size());
+        assertEquals("light rain", updates.get(0).getDescription());
+        assertEquals("GB", updates.get(0).getCountry());
+        assertEquals("clear sky", updates.get(1).getDescription());
+        verify(rateLimiter, times(1)).enforceRateLimit(API_KEY);
+    }
+
+    @Test
+    void testSubscribe_TooManyLocations_ReturnsBadRequest() {
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path(API_URL + "/subscribe")
+                        .queryParam("location", (Object[]) IntStream.range(0, 51).mapToObj(i -> "City" + i).toArray(String[]::new))
+                        .queryParam("apiKey", API_KEY)
+                        .build())
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
 }
@@ -0,0 +1,42 @@
+package actuator;
+
+import com.example.checkweather.actuator.NegativeCacheEndpoint;
+import com.example.checkweather.actuator.WeatherMetrics;
+import com.example.checkweather.cache.NegativeCache;
+import com.example.checkweather.configuration.NegativeCacheConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NegativeCacheEndpointTest {
+
+    private NegativeCacheConfig negativeCacheConfig;
+    private NegativeCache negativeCache;
+    private NegativeCacheEndpoint negativeCacheEndpoint;
+
+    @BeforeEach
+    void setUp() {
+        negativeCacheConfig = new NegativeCacheConfig();
+        negativeCache = new NegativeCache(negativeCacheConfig, new WeatherMetrics(new SimpleMeterRegistry()));
+        negativeCacheEndpoint = new NegativeCacheEndpoint(negativeCache, negativeCacheConfig);
+        negativeCache.record("atlantis,");
+    }
+
+    @Test
+    void testClearIsRefusedUnlessEnabled() {
+        assertEquals(403, negativeCacheEndpoint.clear().getStatus());
+        assertTrue(negativeCache.isMissing("atlantis,"));
+    }
+
+    @Test
+    void testClearForgetsEveryKeyWhenEnabled() {
+        negativeCacheConfig.setClearEnabled(true);
+
+        assertEquals(204, negativeCacheEndpoint.clear().getStatus());
+        assertFalse(negativeCache.isMissing("atlantis,"));
+    }
+}
@@ -0,0 +1,53 @@
+package actuator;
+
+import com.example.checkweather.actuator.WarmupInfoContributor;
+import com.example.checkweather.cache.HotListStore;
+import com.example.checkweather.cache.HotLocationTracker;
+import com.example.checkweather.configuration.UpstreamKeyConfig;
+import com.example.checkweather.configuration.WarmupConfig;
+import com.example.checkweather.service.CacheWarmer;
+import com.example.checkweather.service.CheckWeatherService;
+import com.example.checkweather.utils.UpstreamKeyPool;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.info.Info;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class WarmupInfoContributorTest {
+
+    private final WarmupConfig warmupConfig = new WarmupConfig();
+    private final HotLocationTracker hotLocationTracker = new HotLocationTracker(warmupConfig);
+
+    @Test
+    void testWithoutUpstreamKeysWarmupIsReportedInactive() {
+        hotLocationTracker.record("london,gb");
+
+        assertEquals(Map.of("enabled", true, "active", false, "reason", "no upstream keys configured", "hotLocations", 1),
+                warmupInfo(List.of()));
+    }
+
+    @Test
+    void testWithUpstreamKeysWarmupIsReportedActive() {
+        assertEquals(Map.of("enabled", true, "active", true, "hotLocations", 0), warmupInfo(List.of("upstreamKey")));
+
+        warmupConfig.setEnabled(false);
+        assertEquals(Map.of("enabled", false, "active", false, "hotLocations", 0), warmupInfo(List.of("upstreamKey")));
+    }
+
+    private Object warmupInfo(List<String> upstreamKeys) {
+        UpstreamKeyConfig upstreamKeyConfig = new UpstreamKeyConfig();
+        upstreamKeyConfig.setKeys(upstreamKeys);
+        UpstreamKeyPool upstreamKeyPool = new UpstreamKeyPool(upstreamKeyConfig);
+        CacheWarmer cacheWarmer = new CacheWarmer(mock(CheckWeatherService.class), hotLocationTracker,
+                mock(HotListStore.class), upstreamKeyPool, warmupConfig);
+        Info.Builder builder = new Info.Builder();
+
+        new WarmupInfoContributor(cacheWarmer, warmupConfig, upstreamKeyPool, hotLocationTracker).contribute(builder);
+
+        return builder.build().get("warmup");
+    }
+}
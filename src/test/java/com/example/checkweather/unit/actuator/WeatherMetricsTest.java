@@ -0,0 +1,62 @@
+package actuator;
+
+import com.example.checkweather.actuator.WeatherMetrics;
+import com.example.checkweather.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WeatherMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private WeatherMetrics weatherMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        weatherMetrics = new WeatherMetrics(meterRegistry);
+    }
+
+    @Test
+    void testMonoStagesAreTaggedByOutcome() {
+        StepVerifier.create(weatherMetrics.time(WeatherMetrics.STAGE_DB_QUERY, Mono.just("row"))).expectNext("row").verifyComplete();
+        StepVerifier.create(weatherMetrics.time(WeatherMetrics.STAGE_DB_QUERY, Mono.empty())).verifyComplete();
+        StepVerifier.create(weatherMetrics.time(WeatherMetrics.STAGE_DB_QUERY, Mono.error(new IllegalStateException())))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        assertEquals(1, stageCount(WeatherMetrics.STAGE_DB_QUERY, "success"));
+        assertEquals(1, stageCount(WeatherMetrics.STAGE_DB_QUERY, "empty"));
+        assertEquals(1, stageCount(WeatherMetrics.STAGE_DB_QUERY, "error"));
+    }
+
+    @Test
+    void testRejectionsAreRecordedAndRethrown() {
+        assertThrows(RateLimitExceededException.class, () -> weatherMetrics.time(WeatherMetrics.STAGE_RATE_LIMIT, () -> {
+            throw new RateLimitExceededException("Rate limit exceeded");
+        }));
+
+        assertEquals(1, stageCount(WeatherMetrics.STAGE_RATE_LIMIT, "rejected"));
+    }
+
+    @Test
+    void testCountersAreTagged() {
+        weatherMetrics.cacheResult(WeatherMetrics.LAYER_MEMORY, true);
+        weatherMetrics.cacheResult(WeatherMetrics.LAYER_MEMORY, true);
+        weatherMetrics.cacheResult(WeatherMetrics.LAYER_STORE, false);
+        weatherMetrics.upstreamResponse("503");
+
+        assertEquals(2, meterRegistry.get("weather.cache.requests").tags("layer", "memory", "result", "hit").counter().count());
+        assertEquals(1, meterRegistry.get("weather.cache.requests").tags("layer", "store", "result", "miss").counter().count());
+        assertEquals(1, meterRegistry.get("weather.upstream.responses").tag("status", "503").counter().count());
+    }
+
+    private long stageCount(String stage, String outcome) {
+        return meterRegistry.get("weather.lookup.stage").tags("stage", stage, "outcome", outcome).timer().count();
+    }
+}
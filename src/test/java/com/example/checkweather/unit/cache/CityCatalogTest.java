@@ -0,0 +1,98 @@
+package cache;
+
+import com.example.checkweather.actuator.WeatherMetrics;
+import com.example.checkweather.cache.CityCatalog;
+import com.example.checkweather.cache.GridCells;
+import com.example.checkweather.cache.LocationKeys;
+import com.example.checkweather.configuration.CacheConfig;
+import com.example.checkweather.configuration.CatalogConfig;
+import com.example.checkweather.configuration.GeoConfig;
+import com.example.checkweather.configuration.LocationConfig;
+import com.example.checkweather.model.CitySuggestion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CityCatalogTest {
+
+    private static final String CATALOG = """
+            # id, name, country
+            2643743\tLondon\tGB
+            6058560\tLondon\tCA
+            2988507\tParis\tFR
+            3448439\tSão Paulo\tBR
+            2147714\tSydney\tAU
+            """;
+
+    private final LocationKeys locationKeys = new LocationKeys(new LocationConfig());
+    private CatalogConfig catalogConfig;
+    private CityCatalog cityCatalog;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        catalogConfig = new CatalogConfig();
+        catalogConfig.setEnforce(true);
+        cityCatalog = new CityCatalog(catalogConfig, new WeatherMetrics(new SimpleMeterRegistry()));
+        cityCatalog.load(new ByteArrayInputStream(CATALOG.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void rejects_ShouldMatchCanonicalNamesAndCountries() {
+        assertEquals(5, cityCatalog.size());
+        assertFalse(cityCatalog.rejects(locationKeys.of(" LONDON ", "United Kingdom")));
+        assertFalse(cityCatalog.rejects(locationKeys.of("london", null)));
+        assertFalse(cityCatalog.rejects(locationKeys.of("SÃO PAULO", "BRA")));
+        assertTrue(cityCatalog.rejects(locationKeys.of("Londn", "GB")));
+        assertTrue(cityCatalog.rejects(locationKeys.of("Paris", "US")));
+        assertFalse(cityCatalog.rejects(new GridCells(new GeoConfig(), new CacheConfig()).cellOf(51.5, -0.1)));
+
+        catalogConfig.setEnforce(false);
+        assertFalse(cityCatalog.rejects(locationKeys.of("Londn", "GB")));
+    }
+
+    @Test
+    void cityId_ShouldResolveUniqueLocationsOnly() {
+        assertEquals(OptionalLong.of(6058560), cityCatalog.cityId(locationKeys.of("London", "CA")));
+        assertEquals(OptionalLong.of(2147714), cityCatalog.cityId(locationKeys.of("Sydney", null)));
+        // Two Londons, without a country the ID is ambiguous
+        assertEquals(OptionalLong.empty(), cityCatalog.cityId(locationKeys.of("London", null)));
+        assertEquals(OptionalLong.empty(), cityCatalog.cityId(locationKeys.of("Atlantis", null)));
+    }
+
+    @Test
+    void cityId_WithDuplicateNamesInOneCountry_ShouldBeEmpty() throws IOException {
+        cityCatalog.load(new ByteArrayInputStream("""
+                4409896\tSpringfield\tUS
+                4951788\tSpringfield\tUS
+                2155718\tSpringfield\tAU
+                """.getBytes(StandardCharsets.UTF_8)));
+
+        // Several Springfields in the US, a group request could answer for the wrong one
+        assertEquals(OptionalLong.empty(), cityCatalog.cityId(locationKeys.of("Springfield", "US")));
+        assertEquals(OptionalLong.of(2155718), cityCatalog.cityId(locationKeys.of("Springfield", "AU")));
+        assertFalse(cityCatalog.rejects(locationKeys.of("Springfield", "US")));
+    }
+
+    @Test
+    void suggest_ShouldReturnCitiesStartingWithTheFoldedPrefixWithinTheMemoryBudget() {
+        assertEquals(List.of(new CitySuggestion(6058560, "London", "CA"), new CitySuggestion(2643743, "London", "GB")),
+                cityCatalog.suggest(" lon", 10));
+        assertEquals(List.of(new CitySuggestion(3448439, "São Paulo", "BR")), cityCatalog.suggest("SÃO", 10));
+        assertEquals(1, cityCatalog.suggest("l", 1).size());
+        assertTrue(cityCatalog.suggest("x", 10).isEmpty());
+
+        // Twice the name bytes and 14 bytes per city, plus the array headers and the country dictionary
+        long names = "londonlondonparissão paulosydney".getBytes(StandardCharsets.UTF_8).length;
+        assertTrue(cityCatalog.memoryBytes() <= 2 * names + 14 * 5 + 8 + 16 * 7 + 5 * 64, String.valueOf(cityCatalog.memoryBytes()));
+    }
+}
@@ -0,0 +1,63 @@
+package cache;
+
+import com.example.checkweather.cache.GridCells;
+import com.example.checkweather.cache.LocationKey;
+import com.example.checkweather.configuration.CacheConfig;
+import com.example.checkweather.configuration.GeoConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GridCellsTest {
+
+    private GridCells gridCells(boolean shareNeighbours) {
+        GeoConfig geoConfig = new GeoConfig();
+        geoConfig.setShareNeighbours(shareNeighbours);
+        return new GridCells(geoConfig, new CacheConfig());
+    }
+
+    @Test
+    void cellOf_NearbyCoordinates_ShouldShareOneCell() {
+        GridCells gridCells = gridCells(false);
+
+        LocationKey cell = gridCells.cellOf(51.5072, -0.1276);
+
+        assertSame(cell, gridCells.cellOf(51.51, -0.14));
+        assertNotEquals(cell, gridCells.cellOf(51.56, -0.1276));
+        assertEquals("@51.5250,-0.1250", cell.getKey());
+        assertTrue(cell.isCell());
+        assertTrue(GridCells.isCell(cell.getKey()));
+        assertSame(cell, gridCells.parse(cell.getKey()));
+        // Both sides of the antimeridian and the poles are valid cells
+        assertEquals(gridCells.cellOf(0, 180), gridCells.cellOf(0, -180));
+        assertEquals("@89.9750,-179.9750", gridCells.cellOf(90, -180).getKey());
+    }
+
+    @Test
+    void cellOf_OutOfRangeCoordinates_ShouldThrow() {
+        GridCells gridCells = gridCells(false);
+
+        assertThrows(IllegalArgumentException.class, () -> gridCells.cellOf(90.5, 0));
+        assertThrows(IllegalArgumentException.class, () -> gridCells.cellOf(0, Double.NaN));
+    }
+
+    @Test
+    void nearestCachedNeighbour_ShouldOnlyReturnCachedAdjacentCellsWhenSharing() {
+        GridCells sharing = gridCells(true);
+        GridCells notSharing = gridCells(false);
+        LocationKey cached = sharing.cellOf(51.5072, -0.1276);
+        sharing.markCached(cached);
+        notSharing.markCached(notSharing.cellOf(51.5072, -0.1276));
+
+        // One cell north is adjacent, two cells north is not
+        assertSame(cached, sharing.nearestCachedNeighbour(51.56, -0.1276));
+        assertNull(sharing.nearestCachedNeighbour(51.61, -0.1276));
+        assertNull(notSharing.nearestCachedNeighbour(51.56, -0.1276));
+        assertEquals(1, sharing.cachedCount());
+    }
+}
@@ -0,0 +1,70 @@
+package cache;
+
+import com.example.checkweather.cache.FileHotListStore;
+import com.example.checkweather.cache.HotLocationTracker;
+import com.example.checkweather.configuration.WarmupConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HotLocationTrackerTest {
+
+    private HotLocationTracker hotLocationTracker;
+
+    @BeforeEach
+    void setUp() {
+        WarmupConfig warmupConfig = new WarmupConfig();
+        warmupConfig.setTopK(3);
+        warmupConfig.setSketchWidth(256);
+        hotLocationTracker = new HotLocationTracker(warmupConfig);
+    }
+
+    @Test
+    void testHotKeysAreRankedByFrequencyAndBoundedToTopK() {
+        record("london,gb", 50);
+        record("paris,fr", 30);
+        record("sydney,au", 20);
+        // A long tail of locations requested once each must not push out the hot ones
+        for (int i = 0; i < 1000; i++) {
+            record("town" + i + ",xx", 1);
+        }
+
+        assertEquals(List.of("london,gb", "paris,fr", "sydney,au"), hotLocationTracker.hotKeys());
+    }
+
+    @Test
+    void testDecayLetsNewHotKeysTakeOver() {
+        record("london,gb", 8);
+        record("paris,fr", 6);
+        record("sydney,au", 4);
+        for (int i = 0; i < 4; i++) {
+            hotLocationTracker.decay();
+        }
+        record("tokyo,jp", 5);
+
+        assertEquals("tokyo,jp", hotLocationTracker.hotKeys().get(0));
+    }
+
+    @Test
+    void testSeededListSurvivesAFileRoundTrip(@TempDir Path directory) {
+        FileHotListStore store = new FileHotListStore(directory.resolve("nested/hot-locations.txt"));
+        assertTrue(store.load().isEmpty());
+
+        store.save(List.of("london,gb", "paris,fr"));
+        hotLocationTracker.seed(store.load());
+
+        assertEquals(List.of("london,gb", "paris,fr"), hotLocationTracker.hotKeys());
+    }
+
+    private void record(String key, int times) {
+        for (int i = 0; i < times; i++) {
+            hotLocationTracker.record(key);
+        }
+    }
+}
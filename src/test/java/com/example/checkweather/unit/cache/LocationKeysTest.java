@@ -0,0 +1,87 @@
+package cache;
+
+import com.example.checkweather.cache.GridCells;
+import com.example.checkweather.cache.LocationKey;
+import com.example.checkweather.cache.LocationKeys;
+import com.example.checkweather.configuration.CacheConfig;
+import com.example.checkweather.configuration.GeoConfig;
+import com.example.checkweather.configuration.LocationConfig;
+import com.example.checkweather.exception.InvalidLocationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LocationKeysTest {
+
+    private LocationKeys locationKeys;
+
+    @BeforeEach
+    void setUp() {
+        LocationConfig locationConfig = new LocationConfig();
+        locationConfig.setAliases(Map.of("NYC", "New York"));
+        locationKeys = new LocationKeys(locationConfig);
+    }
+
+    @Test
+    void of_ShouldNormalizeCaseWhitespaceAndMissingCountry() {
+        assertEquals(locationKeys.of("London", "GB"), locationKeys.of(" london ", "gb"));
+        assertEquals("london,", locationKeys.of("London", null).getKey());
+        assertEquals("london", locationKeys.of("London", null).query());
+        assertEquals("rio de janeiro,br", locationKeys.of("Rio  de\tJaneiro", "BR").getKey());
+        assertEquals(locationKeys.of("Großenhain", "DE"), locationKeys.of("GROẞENHAIN", "de"));
+        assertEquals("grossenhain,de", locationKeys.of("Großenhain", "DE").getKey());
+    }
+
+    @Test
+    void of_ShouldMapCountryCodesNamesAndAliasesToAlpha2() {
+        assertEquals("gb", locationKeys.of("London", "GBR").getCountry());
+        assertEquals("gb", locationKeys.of("London", "United Kingdom").getCountry());
+        assertEquals("gb", locationKeys.of("London", "UK").getCountry());
+        assertEquals("au", locationKeys.of("Sydney", "Australia").getCountry());
+        assertEquals("atlantis", locationKeys.of("Poseidonia", "Atlantis").getCountry());
+        assertEquals("new york,us", locationKeys.of("nyc", "USA").getKey());
+    }
+
+    @Test
+    void of_CityShapedLikeAGridCell_ShouldBeRejected() {
+        GridCells gridCells = new GridCells(new GeoConfig(), new CacheConfig());
+        assertEquals("@51.5250,-0.1250", gridCells.cellOf(51.52, -0.12).getKey());
+
+        // Without the check this city would share the cache entry of the cell above
+        assertThrows(InvalidLocationException.class, () -> locationKeys.of("@51.5250", "-0.1250"));
+        assertThrows(InvalidLocationException.class, () -> locationKeys.of(" ＠51.5250", null));
+    }
+
+    @Test
+    void of_CommaInCityOrCountry_ShouldBeRejected() {
+        assertThrows(InvalidLocationException.class, () -> locationKeys.of("Washington, D.C.", "US"));
+        // NFKC turns the fullwidth comma into a plain one
+        assertThrows(InvalidLocationException.class, () -> locationKeys.of("London", "GB，CA"));
+
+        LocationConfig locationConfig = new LocationConfig();
+        locationConfig.setCountryAliases(Map.of("Somewhere", "a,b"));
+        assertThrows(IllegalStateException.class, () -> new LocationKeys(locationConfig));
+    }
+
+    @Test
+    void of_KeySplitAtTheComma_ShouldGiveBackTheSameKey() {
+        for (LocationKey location : List.of(locationKeys.of("Rio  de\tJaneiro", "Brazil"), locationKeys.of("nyc", "USA"),
+                locationKeys.of("London", null), locationKeys.of("Poseidonia", "Atlantis"))) {
+            String key = location.getKey();
+            int separator = key.indexOf(',');
+
+            assertEquals(location, locationKeys.of(key.substring(0, separator), key.substring(separator + 1)));
+        }
+    }
+
+    @Test
+    void of_RepeatedInput_ShouldReturnTheSameKeyInstance() {
+        assertSame(locationKeys.of("London", "GB"), locationKeys.of(new String("London"), new String("GB")));
+    }
+}
@@ -0,0 +1,68 @@
+package cache;
+
+import com.example.checkweather.actuator.WeatherMetrics;
+import com.example.checkweather.cache.NegativeCache;
+import com.example.checkweather.configuration.NegativeCacheConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NegativeCacheTest {
+
+    private NegativeCacheConfig negativeCacheConfig;
+    private MeterRegistry meterRegistry;
+    private NegativeCache negativeCache;
+
+    @BeforeEach
+    void setUp() {
+        negativeCacheConfig = new NegativeCacheConfig();
+        negativeCacheConfig.setMaxEntries(10);
+        negativeCacheConfig.setExpectedKeys(100);
+        meterRegistry = new SimpleMeterRegistry();
+        negativeCache = new NegativeCache(negativeCacheConfig, new WeatherMetrics(meterRegistry));
+    }
+
+    @Test
+    void isMissing_ShouldRejectOnlyKeysConfirmedByTheMap() {
+        IntStream.range(0, 1000).forEach(i -> negativeCache.record("nowhere" + i + ","));
+
+        // The map holds the last 10 keys, the filter grew past its expected 100 keys and still knows all of them
+        long rejected = IntStream.range(0, 1000).filter(i -> negativeCache.isMissing("nowhere" + i + ",")).count();
+        assertTrue(rejected <= 10, "rejected: " + rejected);
+        assertTrue(meterRegistry.counter("weather.negative.hits", "source", NegativeCache.SOURCE_BLOOM).count() >= 990);
+
+        // Good keys are never rejected, whatever the filter claims
+        assertTrue(IntStream.range(0, 10_000).noneMatch(i -> negativeCache.isMissing("city" + i + ",")));
+        assertTrue(negativeCache.expectedFalsePositiveRate() < negativeCacheConfig.getFalsePositiveRate());
+        assertEquals(1000, meterRegistry.counter("weather.negative.recorded").count());
+    }
+
+    @Test
+    void rotate_ShouldExpireKeysAfterTwoGenerations() {
+        negativeCache.record("atlantis,");
+
+        negativeCache.rotate();
+        assertTrue(negativeCache.isMissing("atlantis,"));
+        negativeCache.rotate();
+        assertFalse(negativeCache.isMissing("atlantis,"));
+    }
+
+    @Test
+    void clearAndDisabled_ShouldAcceptEveryKey() {
+        negativeCache.record("atlantis,");
+        negativeCache.clear();
+        assertFalse(negativeCache.isMissing("atlantis,"));
+
+        negativeCacheConfig.setEnabled(false);
+        negativeCache.record("lemuria,");
+        assertFalse(negativeCache.isMissing("lemuria,"));
+        assertEquals(0, negativeCache.size());
+    }
+}
@@ -0,0 +1,61 @@
+package cache;
+
+import com.example.checkweather.cache.CachedWeather;
+import com.example.checkweather.cache.WeatherCache;
+import com.example.checkweather.configuration.CacheConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeatherCacheTest {
+
+    private WeatherCache weatherCache;
+
+    @BeforeEach
+    void setUp() {
+        CacheConfig cacheConfig = new CacheConfig();
+        cacheConfig.setMaximumSize(100);
+        cacheConfig.setTtl(Duration.ofMinutes(10));
+        cacheConfig.setRefreshAhead(Duration.ofMinutes(2));
+        weatherCache = new WeatherCache(cacheConfig);
+    }
+
+    @Test
+    void put_ThenGet_ShouldReturnValueAndRecordHitsAndMisses() {
+        String key = "london,gb";
+
+        assertNull(weatherCache.get(key));
+        weatherCache.put(key, "light rain");
+
+        assertEquals("light rain", weatherCache.get(key).getDescription());
+        assertEquals(1, weatherCache.stats().hitCount());
+        assertEquals(1, weatherCache.stats().missCount());
+    }
+
+    @Test
+    void put_WithExpiredFetchTime_ShouldNotBeCached() {
+        String key = "london,gb";
+
+        weatherCache.put(key, new CachedWeather("light rain", Instant.now().minus(Duration.ofMinutes(11))));
+
+        assertNull(weatherCache.get(key));
+    }
+
+    @Test
+    void tryStartRefresh_ShouldOnlyClaimEntriesCloseToExpiryOnce() {
+        String key = "london,gb";
+        CachedWeather fresh = new CachedWeather("light rain", Instant.now());
+        CachedWeather ageing = new CachedWeather("light rain", Instant.now().minus(Duration.ofMinutes(9)));
+
+        assertFalse(weatherCache.tryStartRefresh(key, fresh));
+        assertTrue(weatherCache.tryStartRefresh(key, ageing));
+        assertFalse(weatherCache.tryStartRefresh(key, ageing));
+
+        weatherCache.finishRefresh(key);
+        assertTrue(weatherCache.tryStartRefresh(key, ageing));
+    }
+}
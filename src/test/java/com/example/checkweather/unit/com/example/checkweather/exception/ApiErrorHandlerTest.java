@@ -1,5 +1,7 @@
 package com.example.checkweather.exception;
 
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -10,6 +12,8 @@ import org.springframework.web.reactive.function.client.WebClientResponseExcepti
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.util.concurrent.TimeoutException;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class ApiErrorHandlerTest {
@@ -82,4 +86,59 @@ class ApiErrorHandlerTest {
                 })
                 .verifyComplete();
     }
+
+    @Test
+    void testHandleApiError_WithOpenCircuitBreaker_ReturnsServiceUnavailable() {
+        Exception exception = CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("upstream"));
+
+        Mono<ResponseEntity<String>> result = apiErrorHandler.handleApiError(exception, CITY, COUNTRY);
+
+        StepVerifier.create(result)
+                .expectNextMatches(response -> {
+                    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+                    assertEquals("Service Unavailable", response.getBody());
+                    return true;
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testHandleApiError_WithNoUpstreamCapacity_ReturnsServiceUnavailable() {
+        Mono<ResponseEntity<String>> noKey = apiErrorHandler.handleApiError(
+                new UpstreamUnavailableException("No upstream key available"), CITY, COUNTRY);
+        Mono<ResponseEntity<String>> noRateLimitStore = apiErrorHandler.handleApiError(
+                new RateLimitUnavailableException("Rate limit store unavailable", new IllegalStateException("down")), CITY, COUNTRY);
+
+        StepVerifier.create(noKey.concatWith(noRateLimitStore))
+                .expectNextMatches(response -> HttpStatus.SERVICE_UNAVAILABLE.equals(response.getStatusCode()))
+                .expectNextMatches(response -> HttpStatus.SERVICE_UNAVAILABLE.equals(response.getStatusCode()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testHandleApiError_WithUpstreamTimeout_ReturnsGatewayTimeout() {
+        Mono<ResponseEntity<String>> result = apiErrorHandler.handleApiError(new TimeoutException(), CITY, COUNTRY);
+
+        StepVerifier.create(result)
+                .expectNextMatches(response -> {
+                    assertEquals(HttpStatus.GATEWAY_TIMEOUT, response.getStatusCode());
+                    assertEquals("Error: Gateway Timeout", response.getBody());
+                    return true;
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testHandleApiError_WithUnknownLocation_ReturnsNotFound() {
+        Mono<ResponseEntity<String>> result = apiErrorHandler.handleApiError(
+                new UnknownLocationException("Unknown location atlantis"), CITY, COUNTRY);
+
+        StepVerifier.create(result)
+                .expectNextMatches(response -> {
+                    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+                    assertEquals("Error: Unknown location atlantis", response.getBody());
+                    return true;
+                })
+                .verifyComplete();
+    }
 }
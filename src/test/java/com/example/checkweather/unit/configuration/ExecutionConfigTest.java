@@ -0,0 +1,49 @@
+package configuration;
+
+import com.example.checkweather.configuration.ExecutionConfig;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ExecutionConfigTest {
+
+    @Test
+    void testEventLoopModeOnlyOffloadsBlockingChecks() {
+        ExecutionConfig executionConfig = new ExecutionConfig();
+
+        assertFalse(executionConfig.offloadsAllChecks());
+        assertNotNull(executionConfig.blockingScheduler());
+        assertNull(executionConfig.virtualThreadExecutor());
+    }
+
+    @Test
+    void testVirtualThreadModeRunsChecksOnVirtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21");
+        ExecutionConfig executionConfig = new ExecutionConfig();
+        executionConfig.setMode(ExecutionConfig.Mode.VIRTUAL_THREADS);
+        Scheduler scheduler = executionConfig.blockingScheduler();
+
+        Boolean virtual = Mono.fromCallable(() -> (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+                .subscribeOn(scheduler)
+                .block();
+
+        assertTrue(executionConfig.offloadsAllChecks());
+        assertEquals(Boolean.TRUE, virtual);
+        scheduler.dispose();
+
+        // Shutdown closes the executor through its bean destroy method, which Java 21 executors provide
+        assertNotNull(executionConfig.virtualThreadExecutor().getClass().getMethod("close"));
+    }
+
+    @Test
+    void testVirtualThreadModeFailsFastBeforeJava21() {
+        assumeTrue(Runtime.version().feature() < 21, "only meaningful on older runtimes");
+        ExecutionConfig executionConfig = new ExecutionConfig();
+        executionConfig.setMode(ExecutionConfig.Mode.VIRTUAL_THREADS);
+
+        assertThrows(IllegalStateException.class, executionConfig::blockingScheduler);
+    }
+}
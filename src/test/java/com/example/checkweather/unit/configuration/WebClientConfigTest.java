@@ -0,0 +1,104 @@
+package configuration;
+
+import com.example.checkweather.actuator.WeatherMetrics;
+import com.example.checkweather.configuration.WebClientConfig;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.timeout.ReadTimeoutException;
+import io.netty.resolver.AddressResolverGroup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.ConnectionObserver;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.transport.TransportConfig;
+import reactor.test.StepVerifier;
+
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WebClientConfigTest {
+
+    private WireMockServer wireMockServer;
+    private WebClientConfig webClientConfig;
+    private ConnectionProvider connectionProvider;
+    private final AtomicInteger opened = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        wireMockServer = new WireMockServer(options().dynamicPort());
+        wireMockServer.start();
+        wireMockServer.stubFor(get(urlPathEqualTo("/data/2.5/weather")).willReturn(okJson("{}")));
+
+        webClientConfig = new WebClientConfig();
+        webClientConfig.setBaseUrl(wireMockServer.baseUrl() + "/data/2.5/weather");
+        webClientConfig.setConnTimeout(1000);
+        webClientConfig.setReadTimeout(1000);
+        webClientConfig.setWriteTimeout(1000);
+        webClientConfig.setResponseTimeout(2000);
+        webClientConfig.getPool().setMetrics(false);
+        connectionProvider = webClientConfig.weatherApiConnectionProvider();
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionProvider.dispose();
+        wireMockServer.stop();
+    }
+
+    @Test
+    void testReadTimeoutAppliesToEveryRequestOnAPooledConnection() throws InterruptedException {
+        WebClient webClient = webClientConfig.getWeatherApiWebClient(new CountingConnectionProvider(),
+                new WeatherMetrics(new SimpleMeterRegistry()));
+
+        StepVerifier.create(fetch(webClient)).expectNext("{}").verifyComplete();
+        // Idle in the pool for longer than the read timeout, which only runs while a request is in flight
+        Thread.sleep(1500);
+        StepVerifier.create(fetch(webClient)).expectNext("{}").verifyComplete();
+
+        // The next request on the same connection stalls between body chunks for longer than the read timeout
+        wireMockServer.stubFor(get(urlPathEqualTo("/data/2.5/weather"))
+                .willReturn(okJson("{\"weather\": []}").withChunkedDribbleDelay(2, 4000)));
+        StepVerifier.create(fetch(webClient))
+                .expectErrorMatches(error -> error.getCause() instanceof ReadTimeoutException)
+                .verify(Duration.ofSeconds(3));
+
+        assertEquals(1, opened.get());
+    }
+
+    private static Mono<String> fetch(WebClient webClient) {
+        return webClient.get().retrieve().bodyToMono(String.class);
+    }
+
+    /**
+     * Counts new connections, a reused pooled connection is only acquired, never connected again.
+     */
+    private class CountingConnectionProvider implements ConnectionProvider {
+
+        @Override
+        public Mono<? extends Connection> acquire(TransportConfig config, ConnectionObserver observer,
+                                                  Supplier<? extends SocketAddress> remoteAddress,
+                                                  AddressResolverGroup<?> resolverGroup) {
+            ConnectionObserver counting = observer.then((connection, state) -> {
+                if (state == ConnectionObserver.State.CONNECTED) {
+                    opened.incrementAndGet();
+                }
+            });
+            return connectionProvider.acquire(config, counting, remoteAddress, resolverGroup);
+        }
+
+        @Override
+        public int maxConnections() {
+            return connectionProvider.maxConnections();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package repository;
+
+import com.example.checkweather.repository.H2FileStorePreparer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class H2FileStorePreparerTest {
+
+    private final H2FileStorePreparer preparer = new H2FileStorePreparer();
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void testCompactionKeepsRowsAndShrinksFile() throws SQLException, IOException {
+        String database = dataDir.resolve("weather").toString();
+        try (Connection connection = open(database); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE check_weather_data (city VARCHAR(100), description VARCHAR(255))");
+            statement.execute("INSERT INTO check_weather_data SELECT 'city' || X, REPEAT('x', 200) FROM SYSTEM_RANGE(1, 20000)");
+            statement.execute("DELETE FROM check_weather_data WHERE city <> 'city1'");
+        }
+        long sizeBefore = Files.size(Path.of(database + ".mv.db"));
+
+        preparer.prepare(database, "sa", "");
+
+        assertTrue(Files.size(Path.of(database + ".mv.db")) < sizeBefore);
+        try (Connection connection = open(database); Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT COUNT(*) FROM check_weather_data")) {
+            rows.next();
+            assertEquals(1, rows.getLong(1));
+        }
+    }
+
+    @Test
+    void testUnreadableFileIsMovedAside() throws IOException {
+        String database = dataDir.resolve("weather").toString();
+        Files.write(Path.of(database + ".mv.db"), new byte[8192]);
+
+        preparer.prepare(database, "sa", "");
+
+        assertFalse(Files.exists(Path.of(database + ".mv.db")));
+        try (Stream<Path> files = Files.list(dataDir)) {
+            assertEquals(1, files.filter(file -> file.getFileName().toString().startsWith("weather.mv.db.corrupt-")).count());
+        }
+    }
+
+    @Test
+    void testMissingFileIsLeftForThePoolToCreate() {
+        String database = dataDir.resolve("weather").toString();
+
+        preparer.prepare(database, "sa", "");
+
+        assertFalse(Files.exists(Path.of(database + ".mv.db")));
+    }
+
+    private static Connection open(String database) throws SQLException {
+        return DriverManager.getConnection("jdbc:h2:file:" + database, "sa", "");
+    }
+}
@@ -0,0 +1,149 @@
+package repository;
+
+import com.example.checkweather.actuator.WeatherMetrics;
+import com.example.checkweather.configuration.StoreConfig;
+import com.example.checkweather.repository.WeatherWriteBehind;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WeatherWriteBehindTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StoreConfig storeConfig = new StoreConfig();
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ConnectionFactory connectionFactory = ConnectionFactories.get(
+                "r2dbc:h2:mem:///writebehind" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        databaseClient = DatabaseClient.create(connectionFactory);
+        String schema = new ClassPathResource("schema.sql").getContentAsString(StandardCharsets.UTF_8);
+        Flux.fromStream(Arrays.stream(schema.split(";")))
+                .filter(statement -> !statement.isBlank())
+                .concatMap(statement -> databaseClient.sql(statement).then())
+                .blockLast();
+    }
+
+    @Test
+    void testRowsAreWrittenInOneBatchWithLatestDescriptionPerLocation() throws InterruptedException {
+        storeConfig.setWriteFlushInterval(Duration.ofSeconds(30));
+        storeConfig.setWriteBatchSize(3);
+        WeatherWriteBehind writeBehind = start();
+        Instant now = Instant.now();
+
+        assertTrue(writeBehind.offer("london", "gb", "cloudy", now.minusSeconds(60)));
+        assertTrue(writeBehind.offer("paris", "fr", "clear sky", now));
+        assertTrue(writeBehind.offer("london", "gb", "light rain", now));
+
+        awaitRows(2);
+        assertEquals("light rain", description("london"));
+        assertEquals(1, meterRegistry.get("weather.store.batch.size").summary().count());
+        assertEquals(2.0, meterRegistry.get("weather.store.batch.size").summary().totalAmount());
+        writeBehind.shutdown();
+    }
+
+    @Test
+    void testOlderRowNeverReplacesNewerOne() throws InterruptedException {
+        storeConfig.setWriteFlushInterval(Duration.ofMillis(10));
+        WeatherWriteBehind writeBehind = start();
+        Instant now = Instant.now();
+
+        assertTrue(writeBehind.offer("london", "gb", "light rain", now));
+        awaitRows(1);
+        // A save that was queued earlier but flushed later carries the older fetch time
+        assertTrue(writeBehind.offer("london", "gb", "cloudy", now.minusSeconds(60)));
+        writeBehind.shutdown();
+
+        assertEquals("light rain", description("london"));
+    }
+
+    @Test
+    void testFailedFlushIsRetriedThenCounted() throws InterruptedException {
+        storeConfig.setWriteFlushInterval(Duration.ofMillis(10));
+        storeConfig.setWriteRetries(1);
+        WeatherWriteBehind writeBehind = start();
+        databaseClient.sql("DROP TABLE check_weather_data").then().block();
+
+        assertTrue(writeBehind.offer("london", "gb", "cloudy", Instant.now()));
+        writeBehind.shutdown();
+
+        assertEquals(1.0, meterRegistry.counter("weather.store.writes", "mode", "failed").count());
+        assertEquals(2, meterRegistry.get("weather.lookup.stage").tag("stage", "db_save").timer().count());
+    }
+
+    @Test
+    void testShutdownFlushesQueuedRows() throws InterruptedException {
+        storeConfig.setWriteFlushInterval(Duration.ofMinutes(5));
+        WeatherWriteBehind writeBehind = start();
+
+        assertTrue(writeBehind.offer("london", "gb", "cloudy", Instant.now()));
+        writeBehind.shutdown();
+
+        assertEquals(1L, count());
+        assertFalse(writeBehind.offer("paris", "fr", "clear sky", Instant.now()));
+    }
+
+    @Test
+    void testFullQueueRejectsRows() {
+        storeConfig.setWriteQueueSize(2);
+        // Not started, so nothing drains the queue
+        WeatherWriteBehind writeBehind = new WeatherWriteBehind(databaseClient, storeConfig, new WeatherMetrics(meterRegistry));
+
+        assertTrue(writeBehind.offer("london", "gb", "cloudy", Instant.now()));
+        assertTrue(writeBehind.offer("paris", "fr", "clear sky", Instant.now()));
+        assertFalse(writeBehind.offer("rome", "it", "sunny", Instant.now()));
+        assertEquals(2, writeBehind.queued());
+    }
+
+    @Test
+    void testDisabledWriteBehindRejectsRows() {
+        storeConfig.setWriteBehind(false);
+        WeatherWriteBehind writeBehind = start();
+
+        assertFalse(writeBehind.offer("london", "gb", "cloudy", Instant.now()));
+    }
+
+    private WeatherWriteBehind start() {
+        WeatherWriteBehind writeBehind = new WeatherWriteBehind(databaseClient, storeConfig, new WeatherMetrics(meterRegistry));
+        writeBehind.start();
+        return writeBehind;
+    }
+
+    private void awaitRows(long expected) throws InterruptedException {
+        for (int i = 0; i < 100 && count() < expected; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(expected, count());
+    }
+
+    private long count() {
+        return databaseClient.sql("SELECT COUNT(*) AS n FROM check_weather_data")
+                .map(row -> row.get("n", Long.class))
+                .one()
+                .block();
+    }
+
+    private String description(String city) {
+        return databaseClient.sql("SELECT description FROM check_weather_data WHERE city = :city")
+                .bind("city", city)
+                .map(row -> row.get("description", String.class))
+                .one()
+                .block();
+    }
+}
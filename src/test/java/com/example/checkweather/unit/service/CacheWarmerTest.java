@@ -0,0 +1,127 @@
+package service;
+
+import com.example.checkweather.cache.HotListStore;
+import com.example.checkweather.cache.HotLocationTracker;
+import com.example.checkweather.configuration.UpstreamKeyConfig;
+import com.example.checkweather.configuration.WarmupConfig;
+import com.example.checkweather.model.WeatherResult;
+import com.example.checkweather.service.CacheWarmer;
+import com.example.checkweather.service.CheckWeatherService;
+import com.example.checkweather.utils.UpstreamKeyPool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheWarmerTest {
+
+    @Mock
+    private CheckWeatherService checkWeatherService;
+
+    @Mock
+    private HotListStore hotListStore;
+
+    private WarmupConfig warmupConfig;
+    private HotLocationTracker hotLocationTracker;
+
+    @BeforeEach
+    void setUp() {
+        warmupConfig = new WarmupConfig();
+        warmupConfig.setRequestsPerSecond(1000);
+        hotLocationTracker = new HotLocationTracker(warmupConfig);
+    }
+
+    private CacheWarmer cacheWarmer(List<String> upstreamKeys) {
+        UpstreamKeyConfig upstreamKeyConfig = new UpstreamKeyConfig();
+        upstreamKeyConfig.setKeys(upstreamKeys);
+        return new CacheWarmer(checkWeatherService, hotLocationTracker, hotListStore,
+                new UpstreamKeyPool(upstreamKeyConfig), warmupConfig);
+    }
+
+    @Test
+    void run_ShouldSeedTheTrackerAndPreloadOnlyLocationKeys() {
+        when(hotListStore.load()).thenReturn(List.of("london,gb", "@51.5250,-0.1250", "garbage"));
+        when(checkWeatherService.warm(anyString())).thenReturn(Mono.just(WeatherResult.fresh("cloudy", Instant.now())));
+
+        cacheWarmer(List.of("upstreamKey")).run(null);
+
+        verify(checkWeatherService).warm("london,gb");
+        verify(checkWeatherService).warm("@51.5250,-0.1250");
+        verify(checkWeatherService, never()).warm("garbage");
+        assertTrue(hotLocationTracker.hotKeys().containsAll(List.of("london,gb", "@51.5250,-0.1250")));
+    }
+
+    @Test
+    void run_WithoutUpstreamKeys_ShouldSeedButNotPreload() {
+        when(hotListStore.load()).thenReturn(List.of("london,gb"));
+
+        cacheWarmer(List.of()).run(null);
+
+        verifyNoInteractions(checkWeatherService);
+        assertEquals(List.of("london,gb"), hotLocationTracker.hotKeys());
+    }
+
+    @Test
+    void run_ShouldSpreadUpstreamCallsAndStopWaitingAtTheStartupTimeout() {
+        warmupConfig.setRequestsPerSecond(10);
+        warmupConfig.setStartupTimeout(Duration.ofMillis(500));
+        when(hotListStore.load()).thenReturn(List.of("london,gb", "paris,fr", "sydney,au"));
+        when(checkWeatherService.warm("london,gb")).thenReturn(Mono.never());
+        when(checkWeatherService.warm("paris,fr")).thenReturn(Mono.empty());
+        when(checkWeatherService.warm("sydney,au")).thenReturn(Mono.empty());
+
+        long started = System.nanoTime();
+        cacheWarmer(List.of("upstreamKey")).run(null);
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - started).toMillis();
+
+        // One call every 100 ms, and a hanging call does not hold up readiness past the timeout
+        verify(checkWeatherService).warm("sydney,au");
+        assertTrue(elapsedMillis >= 450 && elapsedMillis < 5000, String.valueOf(elapsedMillis));
+    }
+
+    @Test
+    void refreshHotLocations_ShouldSkipWhileThePreviousRefreshIsRunning() {
+        hotLocationTracker.record("london,gb");
+        Sinks.One<WeatherResult> firstRefresh = Sinks.one();
+        when(checkWeatherService.warm("london,gb"))
+                .thenReturn(firstRefresh.asMono())
+                .thenReturn(Mono.empty());
+        CacheWarmer cacheWarmer = cacheWarmer(List.of("upstreamKey"));
+
+        cacheWarmer.refreshHotLocations();
+        verify(checkWeatherService, timeout(1000)).warm("london,gb");
+        cacheWarmer.refreshHotLocations();
+        verify(checkWeatherService, after(200).times(1)).warm("london,gb");
+
+        firstRefresh.tryEmitEmpty();
+        cacheWarmer.refreshHotLocations();
+        verify(checkWeatherService, timeout(1000).times(2)).warm("london,gb");
+    }
+
+    @Test
+    void persistHotList_ShouldSaveTheHotKeysAndDecayTheCounts() {
+        hotLocationTracker.record("london,gb");
+        hotLocationTracker.record("london,gb");
+
+        CacheWarmer cacheWarmer = cacheWarmer(List.of("upstreamKey"));
+
+        cacheWarmer.persistHotList();
+        verify(hotListStore).save(List.of("london,gb"));
+        // Counts are halved after every save, a key that is no longer requested drops off the list
+        cacheWarmer.persistHotList();
+        assertTrue(hotLocationTracker.hotKeys().isEmpty());
+    }
+}
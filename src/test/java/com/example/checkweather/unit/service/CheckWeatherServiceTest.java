@@ -1,9 +1,33 @@
 package service;
 
+import com.example.checkweather.actuator.WeatherMetrics;
+import com.example.checkweather.cache.CityCatalog;
+import com.example.checkweather.cache.GridCells;
+import com.example.checkweather.cache.HotLocationTracker;
+import com.example.checkweather.cache.LocationKeys;
+import com.example.checkweather.cache.NegativeCache;
+import com.example.checkweather.cache.WeatherCache;
+import com.example.checkweather.configuration.CacheConfig;
+import com.example.checkweather.configuration.CatalogConfig;
+import com.example.checkweather.configuration.GeoConfig;
+import com.example.checkweather.configuration.LocationConfig;
+import com.example.checkweather.configuration.NegativeCacheConfig;
+import com.example.checkweather.configuration.ResilienceConfig;
+import com.example.checkweather.configuration.StoreConfig;
+import com.example.checkweather.configuration.UpstreamKeyConfig;
+import com.example.checkweather.configuration.WarmupConfig;
+import com.example.checkweather.exception.UnknownLocationException;
+import com.example.checkweather.exception.UpstreamUnavailableException;
 import com.example.checkweather.model.CheckWeatherData;
 import com.example.checkweather.model.CheckWeatherResponse;
 import com.example.checkweather.repository.CheckWeatherRepository;
+import com.example.checkweather.repository.WeatherWriteBehind;
 import com.example.checkweather.service.CheckWeatherService;
+import com.example.checkweather.service.UpstreamBatcher;
+import com.example.checkweather.service.UpstreamResilience;
+import com.example.checkweather.utils.UpstreamKeyPool;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,6 +35,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -20,12 +45,23 @@ import org.springframework.web.util.UriBuilder;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.OptionalLong;
 import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,6 +74,47 @@ class CheckWeatherServiceTest {
     @Qualifier("weatherApiWebClient")
     private WebClient webClient;
 
+    @Spy
+    private WeatherCache weatherCache = new WeatherCache(new CacheConfig());
+
+    @Spy
+    private StoreConfig storeConfig = new StoreConfig();
+
+    @Spy
+    private UpstreamKeyPool upstreamKeyPool = new UpstreamKeyPool(new UpstreamKeyConfig());
+
+    @Spy
+    private UpstreamResilience upstreamResilience = new UpstreamResilience(new ResilienceConfig(), CircuitBreakerRegistry.ofDefaults());
+
+    @Spy
+    private WeatherMetrics weatherMetrics = new WeatherMetrics(new SimpleMeterRegistry());
+
+    @Spy
+    private HotLocationTracker hotLocationTracker = new HotLocationTracker(new WarmupConfig());
+
+    @Spy
+    private LocationKeys locationKeys = new LocationKeys(new LocationConfig());
+
+    // Reports a full queue unless a test says otherwise, so saves go straight to the repository
+    @Mock
+    private WeatherWriteBehind weatherWriteBehind;
+
+    // Knows no city IDs, so every fetch goes out by name
+    @Mock
+    private UpstreamBatcher upstreamBatcher;
+
+    @Spy
+    private GridCells gridCells = new GridCells(new GeoConfig(), new CacheConfig());
+
+    private final CatalogConfig catalogConfig = new CatalogConfig();
+
+    // Empty until a test loads it, an empty catalog accepts every location
+    @Spy
+    private CityCatalog cityCatalog = new CityCatalog(catalogConfig, new WeatherMetrics(new SimpleMeterRegistry()));
+
+    @Spy
+    private NegativeCache negativeCache = new NegativeCache(new NegativeCacheConfig(), new WeatherMetrics(new SimpleMeterRegistry()));
+
     @InjectMocks
     private CheckWeatherService checkWeatherService;
 
@@ -53,7 +130,7 @@ class CheckWeatherServiceTest {
 
         // Set up WebClient mock chain with lenient stubbings
         lenient().doReturn(requestHeadersUriSpecMock).when(webClient).get();
-        lenient().doReturn(requestHeadersSpecMock).when(requestHeadersUriSpecMock).uri(any(Function.class));
+        lenient().doReturn(requestHeadersSpecMock).when(requestHeadersUriSpecMock).uri(anyUriFunction());
         lenient().doReturn(responseSpecMock).when(requestHeadersSpecMock).retrieve();
 
         // Mock bodyToMono to return a valid Mono<CheckWeatherResponse> with lenient stubbing
@@ -65,6 +142,11 @@ class CheckWeatherServiceTest {
         lenient().doReturn(Mono.just(weatherResponse)).when(responseSpecMock).bodyToMono(CheckWeatherResponse.class);
     }
 
+    private static Function<UriBuilder, URI> anyUriFunction() {
+        // Typed matcher, uri(...) is overloaded and any(Function.class) would be a raw type
+        return any();
+    }
+
     @Test
     void getWeatherDescription_whenDataExistsInRepository_shouldReturnDescription() {
         String city = "Sydney";
@@ -76,15 +158,17 @@ class CheckWeatherServiceTest {
                 .city(city)
                 .country(country)
                 .description(description)
+                .fetchedAt(Instant.now())
                 .build();
 
-        when(weatherRepository.findByCityAndCountry(city, country)).thenReturn(Mono.just(data));
+        when(weatherRepository.findByCityAndCountryAndFetchedAtAfter(eq("sydney"), eq("au"), any(Instant.class)))
+                .thenReturn(Mono.just(data));
 
         StepVerifier.create(checkWeatherService.getWeatherDescription(city, country, clientApiKey))
                 .expectNext(description)
                 .verifyComplete();
 
-        verify(weatherRepository, times(1)).findByCityAndCountry(city, country);
+        verify(weatherRepository, times(1)).findByCityAndCountryAndFetchedAtAfter(eq("sydney"), eq("au"), any(Instant.class));
     }
 
     @Test
@@ -93,7 +177,8 @@ class CheckWeatherServiceTest {
         String country = "Australia";
         String clientApiKey = "testApiKey";
 
-        when(weatherRepository.findByCityAndCountry(city, country)).thenReturn(Mono.empty());
+        when(weatherRepository.findByCityAndCountryAndFetchedAtAfter(eq("sydney"), eq("au"), any(Instant.class)))
+                .thenReturn(Mono.empty());
         doReturn(Mono.error(WebClientResponseException.create(404, "Not Found", null, null, null)))
                 .when(responseSpecMock).bodyToMono(CheckWeatherResponse.class);
 
@@ -101,7 +186,7 @@ class CheckWeatherServiceTest {
                 .expectError(WebClientResponseException.class)
                 .verify();
 
-        verify(weatherRepository, times(1)).findByCityAndCountry(city, country);
+        verify(weatherRepository, times(1)).findByCityAndCountryAndFetchedAtAfter(eq("sydney"), eq("au"), any(Instant.class));
         verify(webClient, times(1)).get();
     }
 
@@ -113,10 +198,11 @@ class CheckWeatherServiceTest {
         String description = "Sunny";
 
         // Ensure repository returns empty to simulate cache miss
-        when(weatherRepository.findByCityAndCountry(city, country)).thenReturn(Mono.empty());
+        when(weatherRepository.findByCityAndCountryAndFetchedAtAfter(eq("sydney"), eq("au"), any(Instant.class)))
+                .thenReturn(Mono.empty());
 
-        // Mock the save method to return Mono.empty(), simulating a successful save operation
-        when(weatherRepository.save(any(CheckWeatherData.class))).thenReturn(Mono.empty());
+        // Mock the upsert method, simulating a successful save operation
+        when(weatherRepository.upsert(anyString(), anyString(), anyString(), any(Instant.class))).thenReturn(Mono.just(1));
 
         // Capture the URI function for verification
         @SuppressWarnings("unchecked")
@@ -138,19 +224,116 @@ class CheckWeatherServiceTest {
                 .verifyComplete();
 
         // Verify URI construction and WebClient interaction
-        verify(requestHeadersUriSpecMock).uri(any(Function.class));
+        verify(requestHeadersUriSpecMock).uri(anyUriFunction());
 
         // Verify that the correct URI was generated
         Function<UriBuilder, URI> capturedUriFunction = uriFunctionCaptor.getValue();
         DefaultUriBuilderFactory factory = new DefaultUriBuilderFactory();
         UriBuilder uriBuilder = factory.builder();
         URI generatedUri = capturedUriFunction.apply(uriBuilder);
-        assertEquals(String.format("?q=%s,%s&appid=%s", city, country, clientApiKey), generatedUri.toString());
+        assertEquals(String.format("?q=sydney,au&appid=%s", clientApiKey), generatedUri.toString());
 
         // Confirm WebClient was called and repository save was invoked
         verify(webClient, times(1)).get();
         verify(responseSpecMock).bodyToMono(CheckWeatherResponse.class);
-        verify(weatherRepository, times(1)).save(any(CheckWeatherData.class));
+        verify(weatherRepository, times(1)).upsert(eq("sydney"), eq("au"), eq(description), any(Instant.class));
+        assertEquals(List.of("sydney,au"), hotLocationTracker.hotKeys());
+    }
+
+    @Test
+    void getWeatherDescription_whenEveryPoolKeyIsRejected_shouldFailAsUnavailable() {
+        doReturn(true).when(upstreamKeyPool).isEnabled();
+        doReturn("poolKey").when(upstreamKeyPool).acquire();
+        when(weatherRepository.findByCityAndCountryAndFetchedAtAfter(eq("sydney"), eq("au"), any(Instant.class)))
+                .thenReturn(Mono.empty());
+        doReturn(Mono.error(WebClientResponseException.create(401, "Unauthorized", null, "Invalid API key".getBytes(), null)))
+                .when(responseSpecMock).bodyToMono(CheckWeatherResponse.class);
+
+        // The 401 is about the service's own credentials, the client must not see it
+        StepVerifier.create(checkWeatherService.getWeatherDescription("Sydney", "Australia", "testApiKey"))
+                .expectErrorSatisfies(error -> {
+                    assertInstanceOf(UpstreamUnavailableException.class, error);
+                    assertInstanceOf(WebClientResponseException.Unauthorized.class, error.getCause());
+                })
+                .verify();
+
+        // One retry with another pool key, both rejections reported to the pool
+        verify(webClient, times(2)).get();
+        verify(upstreamKeyPool, times(2)).reportRejected("poolKey", 401);
+    }
+
+    @Test
+    void getWeatherDescription_whenCatalogDoesNotKnowTheCity_shouldFailWithoutLookup() throws IOException {
+        catalogConfig.setEnforce(true);
+        cityCatalog.load(new ByteArrayInputStream("2147714\tSydney\tAU\n".getBytes(StandardCharsets.UTF_8)));
+
+        StepVerifier.create(checkWeatherService.getWeatherDescription("Sydnei", "Australia", "testApiKey"))
+                .expectError(UnknownLocationException.class)
+                .verify();
+
+        verifyNoInteractions(weatherRepository, webClient);
+        assertTrue(hotLocationTracker.hotKeys().isEmpty());
+    }
+
+    @Test
+    void getWeatherDescription_afterUpstream404_shouldRejectRepeatsWithoutUpstreamCall() throws IOException {
+        when(weatherRepository.findByCityAndCountryAndFetchedAtAfter(eq("sydnei"), eq("au"), any(Instant.class)))
+                .thenReturn(Mono.empty());
+        doReturn(Mono.error(WebClientResponseException.create(404, "Not Found", null, null, null)))
+                .when(responseSpecMock).bodyToMono(CheckWeatherResponse.class);
+
+        StepVerifier.create(checkWeatherService.getWeatherDescription("Sydnei", "Australia", "testApiKey"))
+                .expectError(WebClientResponseException.NotFound.class)
+                .verify();
+        StepVerifier.create(checkWeatherService.getWeatherDescription(" SYDNEI ", "AUS", "testApiKey"))
+                .expectError(UnknownLocationException.class)
+                .verify();
+
+        verify(webClient, times(1)).get();
+        verify(weatherRepository, times(1)).findByCityAndCountryAndFetchedAtAfter(eq("sydnei"), eq("au"), any(Instant.class));
+        // Neither the 404 nor the remembered rejection puts the name on the hot list
+        assertTrue(hotLocationTracker.hotKeys().isEmpty());
+
+        // A catalog that knows the city overrides the remembered 404
+        cityCatalog.load(new ByteArrayInputStream("1\tSydnei\tAU\n".getBytes(StandardCharsets.UTF_8)));
+        StepVerifier.create(checkWeatherService.getWeatherDescription("Sydnei", "AU", "testApiKey"))
+                .expectError(WebClientResponseException.NotFound.class)
+                .verify();
+
+        // A 404 for a coordinate lookup is never remembered
+        when(weatherRepository.findByCityAndCountryAndFetchedAtAfter(eq("@51.5250,-0.1250"), eq(""), any(Instant.class)))
+                .thenReturn(Mono.empty());
+        StepVerifier.create(checkWeatherService.getWeatherAt(51.5072, -0.1276, "testApiKey"))
+                .expectError(WebClientResponseException.NotFound.class)
+                .verify();
+        assertFalse(negativeCache.isMissing("@51.5250,-0.1250"));
+    }
+
+    @Test
+    void getWeatherAt_whenCellNotInRepository_shouldFetchByCellCenterAndShareTheCell() {
+        String clientApiKey = "testApiKey";
+
+        when(weatherRepository.findByCityAndCountryAndFetchedAtAfter(eq("@51.5250,-0.1250"), eq(""), any(Instant.class)))
+                .thenReturn(Mono.empty());
+        when(weatherRepository.upsert(anyString(), anyString(), anyString(), any(Instant.class))).thenReturn(Mono.just(1));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Function<UriBuilder, URI>> uriFunctionCaptor = ArgumentCaptor.forClass(Function.class);
+        doReturn(requestHeadersSpecMock).when(requestHeadersUriSpecMock).uri(uriFunctionCaptor.capture());
+
+        StepVerifier.create(checkWeatherService.getWeatherAt(51.5072, -0.1276, clientApiKey))
+                .expectNextMatches(result -> result.getDescription().equals("Sunny"))
+                .verifyComplete();
+        // A second coordinate in the same cell is answered from memory
+        StepVerifier.create(checkWeatherService.getWeatherAt(51.51, -0.14, clientApiKey))
+                .expectNextMatches(result -> result.getDescription().equals("Sunny"))
+                .verifyComplete();
+
+        URI generatedUri = uriFunctionCaptor.getValue().apply(new DefaultUriBuilderFactory().builder());
+        assertEquals(String.format("?lat=51.525&lon=-0.125&appid=%s", clientApiKey), generatedUri.toString());
+        verify(webClient, times(1)).get();
+        verify(weatherRepository, times(1)).upsert(eq("@51.5250,-0.1250"), eq(""), eq("Sunny"), any(Instant.class));
+        verify(upstreamBatcher, never()).rememberCityId(any(), any());
+        assertEquals(1, gridCells.cachedCount());
     }
 
     @Test
@@ -161,7 +344,8 @@ class CheckWeatherServiceTest {
         String description = "Sunny";
 
         // Configure repository to return empty, simulating a cache miss
-        when(weatherRepository.findByCityAndCountry(city, country)).thenReturn(Mono.empty());
+        when(weatherRepository.findByCityAndCountryAndFetchedAtAfter(eq("sydney"), eq("au"), any(Instant.class)))
+                .thenReturn(Mono.empty());
 
         // Mock the external API response
         CheckWeatherResponse.Weather weather = new CheckWeatherResponse.Weather();
@@ -173,7 +357,7 @@ class CheckWeatherServiceTest {
         doReturn(Mono.just(weatherResponse)).when(responseSpecMock).bodyToMono(CheckWeatherResponse.class);
 
         // Configure repository to simulate saving data
-        when(weatherRepository.save(any(CheckWeatherData.class))).thenReturn(Mono.empty());
+        when(weatherRepository.upsert(anyString(), anyString(), anyString(), any(Instant.class))).thenReturn(Mono.just(1));
 
         // Invoke the method
         StepVerifier.create(checkWeatherService.getWeatherDescription(city, country, clientApiKey))
@@ -181,18 +365,113 @@ class CheckWeatherServiceTest {
                 .verifyComplete();
 
         // Verify that the data was saved to the repository
-        verify(weatherRepository, times(1)).save(argThat(savedData ->
-                savedData.getCity().equals(city) &&
-                        savedData.getCountry().equals(country) &&
-                        savedData.getDescription().equals(description)
-        ));
+        verify(weatherRepository, times(1)).upsert(eq("sydney"), eq("au"), eq(description), any(Instant.class));
 
         // No additional verification for WebClient behavior here
         verify(webClient, times(1)).get();
     }
 
-}
+    @Test
+    void saveWeatherData_whenWriteBehindAcceptsRow_shouldNotWaitForRepository() {
+        when(weatherRepository.findByCityAndCountryAndFetchedAtAfter(eq("sydney"), eq("au"), any(Instant.class)))
+                .thenReturn(Mono.empty());
+        when(weatherWriteBehind.offer(eq("sydney"), eq("au"), eq("Sunny"), any(Instant.class))).thenReturn(true);
+
+        StepVerifier.create(checkWeatherService.getWeatherDescription("Sydney", "Australia", "testApiKey"))
+                .expectNext("Sunny")
+                .verifyComplete();
+
+        verify(weatherRepository, never()).upsert(anyString(), anyString(), anyString(), any(Instant.class));
+    }
+
+    @Test
+    void fetchWeatherData_whenCityIdIsKnown_shouldUseGroupRequest() {
+        when(weatherRepository.findByCityAndCountryAndFetchedAtAfter(eq("sydney"), eq("au"), any(Instant.class)))
+                .thenReturn(Mono.empty());
+        when(weatherRepository.upsert(anyString(), anyString(), anyString(), any(Instant.class))).thenReturn(Mono.just(1));
+        when(upstreamBatcher.cityId(any())).thenReturn(OptionalLong.of(2147714L));
+        when(upstreamBatcher.fetch(2147714L)).thenReturn(Mono.just("Cloudy"));
+
+        StepVerifier.create(checkWeatherService.getWeatherDescription("Sydney", "Australia", "testApiKey"))
+                .expectNext("Cloudy")
+                .verifyComplete();
 
+        verify(webClient, never()).get();
+    }
 
+    @Test
+    void getWeatherDescription_whenCached_shouldNotHitRepositoryOrExternalApi() {
+        String city = "Sydney";
+        String country = "Australia";
+        String clientApiKey = "testApiKey";
+        String description = "Sunny";
 
+        when(weatherRepository.findByCityAndCountryAndFetchedAtAfter(eq("sydney"), eq("au"), any(Instant.class)))
+                .thenReturn(Mono.empty());
+        when(weatherRepository.upsert(anyString(), anyString(), anyString(), any(Instant.class))).thenReturn(Mono.just(1));
 
+        // First call misses and populates the cache
+        StepVerifier.create(checkWeatherService.getWeatherDescription(city, country, clientApiKey))
+                .expectNext(description)
+                .verifyComplete();
+
+        // Second call with a differently formatted location is served from memory
+        StepVerifier.create(checkWeatherService.getWeatherDescription(" sydney ", "AUSTRALIA", clientApiKey))
+                .expectNext(description)
+                .verifyComplete();
+
+        verify(weatherRepository, times(1)).findByCityAndCountryAndFetchedAtAfter(eq("sydney"), eq("au"), any(Instant.class));
+        verify(webClient, times(1)).get();
+        assertEquals(1, weatherCache.stats().hitCount());
+    }
+
+    @Test
+    void getWeather_whenUpstreamFails_shouldServeStoredDataAsStale() {
+        String city = "Sydney";
+        String country = "Australia";
+        String clientApiKey = "testApiKey";
+        Instant fetchedAt = Instant.now().minus(Duration.ofHours(1));
+
+        CheckWeatherData data = CheckWeatherData.builder()
+                .city("sydney")
+                .country("australia")
+                .description("Clear sky")
+                .fetchedAt(fetchedAt)
+                .build();
+
+        // Nothing fresh is stored, but an hour old row is still within the stale window
+        when(weatherRepository.findByCityAndCountryAndFetchedAtAfter(eq("sydney"), eq("au"), any(Instant.class)))
+                .thenReturn(Mono.empty())
+                .thenReturn(Mono.just(data));
+        doReturn(Mono.error(WebClientResponseException.create(503, "Service Unavailable", null, null, null)))
+                .when(responseSpecMock).bodyToMono(CheckWeatherResponse.class);
+
+        StepVerifier.create(checkWeatherService.getWeather(city, country, clientApiKey))
+                .assertNext(result -> {
+                    assertEquals("Clear sky", result.getDescription());
+                    assertEquals(fetchedAt, result.getFetchedAt());
+                    assertTrue(result.isStale());
+                })
+                .verifyComplete();
+
+        verify(weatherRepository, never()).upsert(anyString(), anyString(), anyString(), any(Instant.class));
+    }
+
+    @Test
+    void warm_whenCachedEntryIsFresh_shouldNotCallUpstream() {
+        when(weatherRepository.findByCityAndCountryAndFetchedAtAfter(eq("sydney"), eq("au"), any(Instant.class)))
+                .thenReturn(Mono.empty());
+        when(weatherRepository.upsert(anyString(), anyString(), anyString(), any(Instant.class))).thenReturn(Mono.just(1));
+
+        // A missing entry is loaded, a fresh one is left alone
+        StepVerifier.create(checkWeatherService.warm("Sydney", "Australia"))
+                .assertNext(result -> assertEquals("Sunny", result.getDescription()))
+                .verifyComplete();
+        StepVerifier.create(checkWeatherService.warm("Sydney", "Australia"))
+                .verifyComplete();
+
+        verify(webClient, times(1)).get();
+        // Warm-up traffic does not count towards the hot list
+        assertTrue(hotLocationTracker.hotKeys().isEmpty());
+    }
+}
@@ -0,0 +1,157 @@
+package service;
+
+import com.example.checkweather.actuator.WeatherMetrics;
+import com.example.checkweather.cache.CityCatalog;
+import com.example.checkweather.cache.LocationKeys;
+import com.example.checkweather.configuration.CatalogConfig;
+import com.example.checkweather.configuration.LocationConfig;
+import com.example.checkweather.configuration.UpstreamBatchConfig;
+import com.example.checkweather.configuration.UpstreamKeyConfig;
+import com.example.checkweather.configuration.WebClientConfig;
+import com.example.checkweather.exception.UpstreamUnavailableException;
+import com.example.checkweather.service.UpstreamBatcher;
+import com.example.checkweather.utils.UpstreamKeyPool;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamBatcherTest {
+
+    private static final String GROUP_RESPONSE = """
+            {"cnt": 2, "list": [
+                {"id": 2643743, "weather": [{"description": "light rain"}]},
+                {"id": 2988507, "weather": [{"description": "clear sky"}]}
+            ]}
+            """;
+
+    private WireMockServer wireMockServer;
+    private WebClientConfig webClientConfig;
+    private UpstreamBatchConfig upstreamBatchConfig;
+    private UpstreamBatcher upstreamBatcher;
+
+    @BeforeEach
+    void setUp() {
+        wireMockServer = new WireMockServer(options().dynamicPort());
+        wireMockServer.start();
+
+        webClientConfig = new WebClientConfig();
+        webClientConfig.setBaseUrl(wireMockServer.baseUrl() + "/data/2.5/weather");
+        upstreamBatchConfig = new UpstreamBatchConfig();
+        upstreamBatchConfig.setEnabled(true);
+        upstreamBatchConfig.setMaxWait(Duration.ofMillis(200));
+        upstreamBatcher = batcher();
+        upstreamBatcher.start();
+    }
+
+    private UpstreamBatcher batcher() {
+        UpstreamKeyConfig upstreamKeyConfig = new UpstreamKeyConfig();
+        upstreamKeyConfig.setKeys(List.of("pool-key"));
+        WeatherMetrics weatherMetrics = new WeatherMetrics(new SimpleMeterRegistry());
+        return new UpstreamBatcher(WebClient.create(), webClientConfig, upstreamBatchConfig,
+                new UpstreamKeyPool(upstreamKeyConfig), weatherMetrics, new CityCatalog(new CatalogConfig(), weatherMetrics));
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstreamBatcher.stop();
+        wireMockServer.stop();
+    }
+
+    @Test
+    void testConcurrentFetchesShareOneGroupRequest() {
+        wireMockServer.stubFor(get(urlPathEqualTo("/data/2.5/group"))
+                .withQueryParam("appid", equalTo("pool-key"))
+                .willReturn(okJson(GROUP_RESPONSE)));
+
+        StepVerifier.create(Mono.zip(upstreamBatcher.fetch(2643743), upstreamBatcher.fetch(2988507), upstreamBatcher.fetch(2643743)))
+                .assertNext(descriptions -> {
+                    assertEquals("light rain", descriptions.getT1());
+                    assertEquals("clear sky", descriptions.getT2());
+                    assertEquals("light rain", descriptions.getT3());
+                })
+                .verifyComplete();
+
+        wireMockServer.verify(1, getRequestedFor(urlPathEqualTo("/data/2.5/group"))
+                .withQueryParam("id", equalTo("2643743,2988507")));
+    }
+
+    @Test
+    void testCancelledFetchIsDroppedFromTheBatch() {
+        wireMockServer.stubFor(get(urlPathEqualTo("/data/2.5/group")).willReturn(okJson(GROUP_RESPONSE)));
+
+        StepVerifier.create(upstreamBatcher.fetch(2643743))
+                .thenCancel()
+                .verify();
+        StepVerifier.create(upstreamBatcher.fetch(2988507))
+                .expectNext("clear sky")
+                .verifyComplete();
+
+        wireMockServer.verify(1, getRequestedFor(urlPathEqualTo("/data/2.5/group"))
+                .withQueryParam("id", equalTo("2988507")));
+    }
+
+    @Test
+    void testFetchFailsFastWhenTheQueueIsFull() {
+        // One group of one ID in flight that never answers in time, so the queue behind it fills up
+        wireMockServer.stubFor(get(urlPathEqualTo("/data/2.5/group")).willReturn(okJson(GROUP_RESPONSE).withFixedDelay(5000)));
+        upstreamBatcher.stop();
+        upstreamBatchConfig.setMaxSize(1);
+        upstreamBatchConfig.setConcurrency(1);
+        upstreamBatchConfig.setMaxQueued(8);
+        upstreamBatcher = batcher();
+        upstreamBatcher.start();
+        for (long cityId = 1; cityId <= 20; cityId++) {
+            upstreamBatcher.fetch(cityId).subscribe(description -> { }, error -> { });
+        }
+
+        StepVerifier.create(upstreamBatcher.fetch(21))
+                .expectError(UpstreamUnavailableException.class)
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void testIdMissingFromGroupAnswerCompletesEmpty() {
+        wireMockServer.stubFor(get(urlPathEqualTo("/data/2.5/group")).willReturn(okJson(GROUP_RESPONSE)));
+
+        StepVerifier.create(upstreamBatcher.fetch(1))
+                .verifyComplete();
+    }
+
+    @Test
+    void testGroupFailureReachesEveryCaller() {
+        wireMockServer.stubFor(get(urlPathEqualTo("/data/2.5/group")).willReturn(serverError()));
+
+        StepVerifier.create(Mono.zip(upstreamBatcher.fetch(2643743).onErrorReturn(WebClientResponseException.class, "failed"),
+                        upstreamBatcher.fetch(2988507).onErrorReturn(WebClientResponseException.class, "failed")))
+                .assertNext(results -> {
+                    assertEquals("failed", results.getT1());
+                    assertEquals("failed", results.getT2());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testCityIdsAreOnlyKnownWhenBatchingIsEnabled() {
+        LocationKeys locationKeys = new LocationKeys(new LocationConfig());
+        upstreamBatcher.rememberCityId(locationKeys.of("London", "GB"), 2643743L);
+
+        assertEquals(OptionalLong.of(2643743L), upstreamBatcher.cityId(locationKeys.of("london", "gb")));
+        upstreamBatchConfig.setEnabled(false);
+        assertTrue(upstreamBatcher.cityId(locationKeys.of("london", "gb")).isEmpty());
+    }
+}
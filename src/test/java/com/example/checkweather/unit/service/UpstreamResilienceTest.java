@@ -0,0 +1,187 @@
+package service;
+
+import com.example.checkweather.configuration.ResilienceConfig;
+import com.example.checkweather.exception.UpstreamFailurePredicate;
+import com.example.checkweather.service.UpstreamResilience;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamResilienceTest {
+
+    private WireMockServer wireMockServer;
+    private WebClient webClient;
+    private ResilienceConfig resilienceConfig;
+    private UpstreamResilience upstreamResilience;
+
+    @BeforeEach
+    void setUp() {
+        wireMockServer = new WireMockServer(options().dynamicPort());
+        wireMockServer.start();
+        webClient = WebClient.create(wireMockServer.baseUrl());
+
+        resilienceConfig = new ResilienceConfig();
+        resilienceConfig.setMinSamples(5);
+        resilienceConfig.getAdaptiveTimeout().setMin(Duration.ofMillis(150));
+        resilienceConfig.getAdaptiveTimeout().setMax(Duration.ofSeconds(2));
+        CircuitBreakerConfig circuitBreakerConfig = CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .failureRateThreshold(50)
+                .recordException(new UpstreamFailurePredicate())
+                .build();
+        upstreamResilience = new UpstreamResilience(resilienceConfig, CircuitBreakerRegistry.of(circuitBreakerConfig));
+    }
+
+    @AfterEach
+    void tearDown() {
+        wireMockServer.stop();
+    }
+
+    @Test
+    void testSlowUpstreamTimesOutAtMaximumBeforeEnoughSamples() {
+        wireMockServer.stubFor(get("/weather").willReturn(ok("slow").withFixedDelay(4000)));
+
+        StepVerifier.create(upstreamResilience.execute(this::callUpstream))
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(3));
+    }
+
+    @Test
+    void testTimeoutAdaptsToObservedLatency() {
+        wireMockServer.stubFor(get("/weather").willReturn(ok("fast")));
+        for (int i = 0; i < 5; i++) {
+            upstreamResilience.execute(this::callUpstream).block();
+        }
+
+        // Local answers are far below the ceiling, so the timeout shrinks but never under the floor
+        Duration timeout = upstreamResilience.currentTimeout();
+        assertTrue(timeout.compareTo(Duration.ofMillis(150)) >= 0);
+        assertTrue(timeout.compareTo(Duration.ofSeconds(1)) < 0);
+    }
+
+    @Test
+    void testTimeoutGrowsAfterLatencyStepUp() throws InterruptedException {
+        // A breaker with the default window, so the timeouts on the way up do not open it
+        upstreamResilience = new UpstreamResilience(resilienceConfig, CircuitBreakerRegistry.ofDefaults());
+        wireMockServer.stubFor(get("/weather").willReturn(ok("fast")));
+        for (int i = 0; i < 5; i++) {
+            upstreamResilience.execute(this::callUpstream).block();
+        }
+        wireMockServer.resetAll();
+        wireMockServer.stubFor(get("/weather").willReturn(ok("slow").withFixedDelay(400)));
+
+        // Each timeout is sampled at the timeout value, so the timeout doubles until the slower answers fit
+        String body = null;
+        for (int attempt = 0; attempt < 6 && body == null; attempt++) {
+            body = upstreamResilience.execute(this::callUpstream)
+                    .onErrorResume(TimeoutException.class, e -> Mono.empty())
+                    .block();
+            // Percentiles are recomputed at most once per second
+            Thread.sleep(1100);
+        }
+
+        assertEquals("slow", body);
+        assertTrue(upstreamResilience.currentTimeout().compareTo(Duration.ofMillis(400)) > 0);
+    }
+
+    @Test
+    void testServerErrorsOpenTheCircuit() {
+        wireMockServer.stubFor(get("/weather").willReturn(serverError()));
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(upstreamResilience.execute(this::callUpstream))
+                    .expectError(WebClientResponseException.InternalServerError.class)
+                    .verify();
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, upstreamResilience.circuitState());
+        StepVerifier.create(upstreamResilience.execute(this::callUpstream))
+                .expectError(CallNotPermittedException.class)
+                .verify();
+        assertEquals(4, wireMockServer.getAllServeEvents().size());
+    }
+
+    @Test
+    void testClientErrorsDoNotOpenTheCircuit() {
+        wireMockServer.stubFor(get("/weather").willReturn(notFound()));
+        for (int i = 0; i < 6; i++) {
+            StepVerifier.create(upstreamResilience.execute(this::callUpstream))
+                    .expectError(WebClientResponseException.NotFound.class)
+                    .verify();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, upstreamResilience.circuitState());
+    }
+
+    @Test
+    void testHedgedRequestWinsOverSlowPrimary() {
+        resilienceConfig.getHedge().setEnabled(true);
+        resilienceConfig.getAdaptiveTimeout().setEnabled(false);
+        resilienceConfig.getAdaptiveTimeout().setMax(Duration.ofSeconds(5));
+        wireMockServer.stubFor(get("/weather").willReturn(ok("fast")));
+        for (int i = 0; i < 5; i++) {
+            upstreamResilience.execute(this::callUpstream).block();
+        }
+        wireMockServer.resetAll();
+        // First request stalls, the hedged one behind it answers straight away
+        wireMockServer.stubFor(get("/weather").inScenario("hedge").whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(ok("slow").withFixedDelay(3000)).willSetStateTo("fast"));
+        wireMockServer.stubFor(get("/weather").inScenario("hedge").whenScenarioStateIs("fast")
+                .willReturn(ok("fast")));
+
+        long start = System.nanoTime();
+        String body = upstreamResilience.execute(this::callUpstream).block();
+
+        assertEquals("fast", body);
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(2)) < 0);
+        assertEquals(2, wireMockServer.getAllServeEvents().size());
+    }
+
+    @Test
+    void testFastHedgeErrorDoesNotBeatSlowerAnswer() {
+        resilienceConfig.getHedge().setEnabled(true);
+        resilienceConfig.getAdaptiveTimeout().setEnabled(false);
+        wireMockServer.stubFor(get("/weather").willReturn(ok("fast")));
+        for (int i = 0; i < 5; i++) {
+            upstreamResilience.execute(this::callUpstream).block();
+        }
+        wireMockServer.resetAll();
+        // The first request answers late, the hedged one fails at once
+        wireMockServer.stubFor(get("/weather").inScenario("hedge").whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(ok("slow").withFixedDelay(500)).willSetStateTo("failing"));
+        wireMockServer.stubFor(get("/weather").inScenario("hedge").whenScenarioStateIs("failing")
+                .willReturn(serverError()));
+
+        assertEquals("slow", upstreamResilience.execute(this::callUpstream).block());
+        assertEquals(2, wireMockServer.getAllServeEvents().size());
+
+        // When both attempts fail the caller sees the upstream error itself
+        wireMockServer.resetAll();
+        wireMockServer.stubFor(get("/weather").willReturn(notFound().withFixedDelay(200)));
+        StepVerifier.create(upstreamResilience.execute(this::callUpstream))
+                .expectError(WebClientResponseException.NotFound.class)
+                .verify();
+    }
+
+    private Mono<String> callUpstream() {
+        return webClient.get().uri("/weather").retrieve().bodyToMono(String.class);
+    }
+}
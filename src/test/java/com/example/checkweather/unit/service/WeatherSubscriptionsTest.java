@@ -0,0 +1,136 @@
+package service;
+
+import com.example.checkweather.cache.LocationKeys;
+import com.example.checkweather.configuration.LocationConfig;
+import com.example.checkweather.configuration.SubscriptionConfig;
+import com.example.checkweather.configuration.UpstreamKeyConfig;
+import com.example.checkweather.model.WeatherResult;
+import com.example.checkweather.service.CheckWeatherService;
+import com.example.checkweather.service.WeatherSubscriptions;
+import com.example.checkweather.utils.UpstreamKeyPool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WeatherSubscriptionsTest {
+
+    @Mock
+    private CheckWeatherService checkWeatherService;
+
+    private SubscriptionConfig subscriptionConfig;
+    private WeatherSubscriptions weatherSubscriptions;
+
+    @BeforeEach
+    void setUp() {
+        subscriptionConfig = new SubscriptionConfig();
+        subscriptionConfig.setRefreshInterval(Duration.ofSeconds(30));
+        weatherSubscriptions = subscriptions(List.of("upstreamKey"));
+    }
+
+    private WeatherSubscriptions subscriptions(List<String> upstreamKeys) {
+        UpstreamKeyConfig upstreamKeyConfig = new UpstreamKeyConfig();
+        upstreamKeyConfig.setKeys(upstreamKeys);
+        return new WeatherSubscriptions(checkWeatherService, subscriptionConfig, new LocationKeys(new LocationConfig()),
+                new UpstreamKeyPool(upstreamKeyConfig));
+    }
+
+    @Test
+    void testOnlyChangedDescriptionsAreEmitted() {
+        Instant now = Instant.now();
+        when(checkWeatherService.getWeather("London", "GB", "key"))
+                .thenReturn(Mono.just(WeatherResult.fresh("cloudy", now)))
+                .thenReturn(Mono.just(WeatherResult.fresh("cloudy", now)))
+                .thenReturn(Mono.error(new IllegalStateException("upstream down")))
+                .thenReturn(Mono.just(WeatherResult.fresh("light rain", now.plusSeconds(90))));
+
+        StepVerifier.withVirtualTime(() -> weatherSubscriptions.changes("London", "GB", "key").map(WeatherResult::getDescription))
+                .expectNext("cloudy")
+                .thenAwait(Duration.ofSeconds(90))
+                .expectNext("light rain")
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void testSubscribersOfOneLocationShareOneLookup() {
+        when(checkWeatherService.getWeather("London", "GB", "key"))
+                .thenReturn(Mono.just(WeatherResult.fresh("cloudy", Instant.now())));
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> second = new CopyOnWriteArrayList<>();
+
+        StepVerifier.withVirtualTime(() -> {
+                    Flux<WeatherResult> changes = weatherSubscriptions.changes("London", "GB", "key");
+                    changes.subscribe(result -> first.add(result.getDescription()));
+                    return weatherSubscriptions.changes("london", "gb", "other key")
+                            .doOnNext(result -> second.add(result.getDescription()));
+                })
+                .expectNextCount(1)
+                .thenAwait(Duration.ofSeconds(60))
+                .thenCancel()
+                .verify();
+
+        assertEquals(List.of("cloudy"), first);
+        assertEquals(List.of("cloudy"), second);
+        assertEquals(1, weatherSubscriptions.activeStreams());
+        // One lookup at subscription and one per refresh interval, not one per subscriber
+        verify(checkWeatherService, times(3)).getWeather("London", "GB", "key");
+        verify(checkWeatherService, never()).getWeather("london", "gb", "other key");
+    }
+
+    @Test
+    void testWithoutUpstreamPoolStreamsAreSharedPerClientKey() {
+        weatherSubscriptions = subscriptions(List.of());
+        when(checkWeatherService.getWeather(anyString(), anyString(), anyString()))
+                .thenReturn(Mono.just(WeatherResult.fresh("cloudy", Instant.now())));
+
+        StepVerifier.withVirtualTime(() -> {
+                    weatherSubscriptions.changes("London", "GB", "key").subscribe();
+                    weatherSubscriptions.changes("London", "GB", "key").subscribe();
+                    return weatherSubscriptions.changes("london", "gb", "other key");
+                })
+                .expectNextCount(1)
+                .thenCancel()
+                .verify();
+
+        // Each client's lookups are billed to its own key
+        verify(checkWeatherService, times(1)).getWeather("London", "GB", "key");
+        verify(checkWeatherService, times(1)).getWeather("london", "gb", "other key");
+        assertEquals(1, weatherSubscriptions.activeStreams());
+    }
+
+    @Test
+    void testStreamIsDroppedAfterLastSubscriberLeaves() {
+        when(checkWeatherService.getWeather("London", "GB", "key"))
+                .thenReturn(Mono.just(WeatherResult.fresh("cloudy", Instant.now())));
+        Flux<WeatherResult> changes = weatherSubscriptions.changes("London", "GB", "key");
+
+        StepVerifier.create(changes)
+                .expectNextCount(1)
+                .thenCancel()
+                .verify();
+        assertEquals(0, weatherSubscriptions.activeStreams());
+
+        // Subscribing again starts a new stream instead of joining the stopped one
+        StepVerifier.create(changes)
+                .expectNextCount(1)
+                .thenCancel()
+                .verify();
+        assertEquals(0, weatherSubscriptions.activeStreams());
+        verify(checkWeatherService, times(2)).getWeather("London", "GB", "key");
+    }
+}
@@ -5,9 +5,19 @@ import com.example.checkweather.configuration.ApiKeyConfig;
 import com.example.checkweather.utils.ApiKeyValidator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.MockitoAnnotations;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -56,5 +66,54 @@ class ApiKeyValidatorTest {
         // Test with a valid API key, expecting no exceptions to be thrown
         assertDoesNotThrow(() -> apiKeyValidator.validate("validApiKey1"));
     }
-}
 
+    @Test
+    void validate_HashedApiKey_ShouldAcceptThePlainKey() throws NoSuchAlgorithmException {
+        ApiKeyConfig apiKeyConfig = new ApiKeyConfig();
+        apiKeyConfig.setKeys(List.of("sha256:" + sha256Hex("hashedApiKey")));
+        ApiKeyValidator validator = new ApiKeyValidator(apiKeyConfig);
+
+        assertDoesNotThrow(() -> validator.validate("hashedApiKey"));
+        assertThrows(InvalidApiKeyException.class, () -> validator.validate(sha256Hex("hashedApiKey")));
+    }
+
+    @Test
+    void reloadIfChanged_KeysFileChanged_ShouldSwapTheKeySet(@TempDir Path dir) throws IOException {
+        Path keysFile = dir.resolve("api-keys.txt");
+        Files.write(keysFile, List.of("# client keys", "fileApiKey1"), StandardCharsets.UTF_8);
+        ApiKeyConfig apiKeyConfig = new ApiKeyConfig();
+        apiKeyConfig.setKeys(validKeys);
+        apiKeyConfig.setKeysFile(keysFile.toString());
+        ApiKeyValidator validator = new ApiKeyValidator(apiKeyConfig);
+        assertDoesNotThrow(() -> validator.validate("fileApiKey1"));
+        assertThrows(InvalidApiKeyException.class, () -> validator.validate("fileApiKey2"));
+
+        Files.write(keysFile, List.of("fileApiKey2"), StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(keysFile, FileTime.from(Instant.now().plusSeconds(5)));
+        validator.reloadIfChanged();
+
+        // Keys of the previous key set must not survive the swap
+        assertThrows(InvalidApiKeyException.class, () -> validator.validate("fileApiKey1"));
+        assertDoesNotThrow(() -> validator.validate("fileApiKey2"));
+        assertDoesNotThrow(() -> validator.validate("validApiKey1"));
+        assertEquals(3, validator.size());
+    }
+
+    @Test
+    void reload_MalformedKeysFile_ShouldKeepTheCurrentKeys(@TempDir Path dir) throws IOException {
+        Path keysFile = dir.resolve("api-keys.txt");
+        Files.write(keysFile, List.of("fileApiKey1"), StandardCharsets.UTF_8);
+        ApiKeyConfig apiKeyConfig = new ApiKeyConfig();
+        apiKeyConfig.setKeysFile(keysFile.toString());
+        ApiKeyValidator validator = new ApiKeyValidator(apiKeyConfig);
+
+        Files.write(keysFile, List.of("sha256:not-hex"), StandardCharsets.UTF_8);
+        validator.reload();
+
+        assertDoesNotThrow(() -> validator.validate("fileApiKey1"));
+    }
+
+    private static String sha256Hex(String value) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+}
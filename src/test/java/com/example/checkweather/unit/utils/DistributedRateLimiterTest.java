@@ -0,0 +1,161 @@
+package utils;
+
+import com.example.checkweather.configuration.RateLimitConfig;
+import com.example.checkweather.exception.RateLimitExceededException;
+import com.example.checkweather.exception.RateLimitUnavailableException;
+import com.example.checkweather.utils.DistributedRateLimiter;
+import com.example.checkweather.utils.InMemoryRateLimitStore;
+import com.example.checkweather.utils.RateLimitStore;
+import com.example.checkweather.utils.TokenLease;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistributedRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(Duration.ofDays(1).toMillis());
+    private final AtomicInteger storeCalls = new AtomicInteger();
+    private RateLimitConfig rateLimitConfig;
+    private RateLimitStore sharedStore;
+
+    @BeforeEach
+    void setUp() {
+        rateLimitConfig = new RateLimitConfig();
+        rateLimitConfig.setLimit(100);
+        rateLimitConfig.setPeriod(Duration.ofHours(1));
+        rateLimitConfig.setLeaseSize(10);
+
+        InMemoryRateLimitStore store = new InMemoryRateLimitStore(clock::get);
+        sharedStore = (windowKey, requested, limit, window) -> {
+            storeCalls.incrementAndGet();
+            return store.lease(windowKey, requested, limit, window);
+        };
+    }
+
+    @Test
+    void enforceRateLimit_AcrossReplicas_ShouldEnforceOneSharedLimit() {
+        DistributedRateLimiter podA = new DistributedRateLimiter(rateLimitConfig, sharedStore, clock::get);
+        DistributedRateLimiter podB = new DistributedRateLimiter(rateLimitConfig, sharedStore, clock::get);
+
+        int admitted = 0;
+        for (int i = 0; i < 150; i++) {
+            DistributedRateLimiter pod = i % 2 == 0 ? podA : podB;
+            try {
+                pod.enforceRateLimit("sharedClient");
+                admitted++;
+            } catch (RateLimitExceededException ignored) {
+                // expected once the shared window is exhausted
+            }
+        }
+
+        assertEquals(100, admitted);
+    }
+
+    @Test
+    void enforceRateLimit_ShouldLeaseTokensInBatches() {
+        DistributedRateLimiter pod = new DistributedRateLimiter(rateLimitConfig, sharedStore, clock::get);
+
+        for (int i = 0; i < 50; i++) {
+            pod.enforceRateLimit("client");
+        }
+
+        assertEquals(5, storeCalls.get());
+    }
+
+    @Test
+    void enforceRateLimit_WithDefaultLimit_ShouldStillLeaseBatchesAndRejectWithoutRoundTrips() {
+        rateLimitConfig.setLimit(5);
+        DistributedRateLimiter pod = new DistributedRateLimiter(rateLimitConfig, sharedStore, clock::get);
+
+        for (int i = 0; i < 5; i++) {
+            pod.enforceRateLimit("client");
+        }
+        assertEquals(3, storeCalls.get());
+
+        // One more round trip finds the window exhausted, the rejections after it stay local
+        for (int i = 0; i < 10; i++) {
+            assertThrows(RateLimitExceededException.class, () -> pod.enforceRateLimit("client"));
+        }
+        assertEquals(4, storeCalls.get());
+    }
+
+    @Test
+    void enforceRateLimit_WhenStoreFails_ShouldFailOpenOrClosedAsConfigured() {
+        RateLimitStore failing = (windowKey, requested, limit, window) -> {
+            throw new IllegalStateException("connection refused");
+        };
+        DistributedRateLimiter pod = new DistributedRateLimiter(rateLimitConfig, failing, clock::get);
+
+        assertDoesNotThrow(() -> pod.enforceRateLimit("client"));
+
+        rateLimitConfig.setFailOpen(false);
+        RateLimitUnavailableException exception = assertThrows(RateLimitUnavailableException.class,
+                () -> pod.enforceRateLimit("client"));
+        assertEquals("connection refused", exception.getCause().getMessage());
+    }
+
+    @Test
+    void enforceRateLimit_WhenWindowExhausted_ShouldReportRetryAfterUntilNextWindow() {
+        rateLimitConfig.setLimit(5);
+        DistributedRateLimiter pod = new DistributedRateLimiter(rateLimitConfig, sharedStore, clock::get);
+        for (int i = 0; i < 5; i++) {
+            pod.enforceRateLimit("client");
+        }
+        clock.addAndGet(Duration.ofMinutes(15).toMillis());
+
+        RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+                () -> pod.enforceRateLimit("client"));
+        assertEquals(Duration.ofMinutes(45), exception.getRetryAfter());
+
+        clock.addAndGet(Duration.ofMinutes(45).toMillis());
+        assertDoesNotThrow(() -> pod.enforceRateLimit("client"));
+    }
+
+    @Test
+    void enforceRateLimit_ShouldReturnLocalAndUnleasedTokens() {
+        DistributedRateLimiter pod = new DistributedRateLimiter(rateLimitConfig, sharedStore, clock::get);
+
+        assertEquals(99, pod.enforceRateLimit("client"));
+        assertEquals(98, pod.enforceRateLimit("client"));
+    }
+
+    @Test
+    void isBlocking_ShouldFollowTheStore() {
+        assertTrue(new DistributedRateLimiter(rateLimitConfig, sharedStore, clock::get).isBlocking());
+        assertFalse(new DistributedRateLimiter(rateLimitConfig, new InMemoryRateLimitStore(clock::get), clock::get).isBlocking());
+    }
+
+    @Test
+    void evictExpiredLeases_ShouldDropLeasesFromPastWindows() {
+        RateLimitStore unlimited = (windowKey, requested, limit, window) -> new TokenLease(requested, limit);
+        DistributedRateLimiter pod = new DistributedRateLimiter(rateLimitConfig, unlimited, clock::get);
+        pod.enforceRateLimit("client");
+
+        pod.evictExpiredLeases();
+        assertEquals(1, pod.trackedKeys());
+
+        clock.addAndGet(Duration.ofHours(1).toMillis());
+        pod.evictExpiredLeases();
+        assertEquals(0, pod.trackedKeys());
+    }
+
+    @Test
+    void evictExpiredLeases_ShouldDropExpiredStoreCountersOffTheRequestPath() {
+        InMemoryRateLimitStore store = new InMemoryRateLimitStore(clock::get);
+        DistributedRateLimiter pod = new DistributedRateLimiter(rateLimitConfig, store, clock::get);
+        pod.enforceRateLimit("client");
+
+        // A lease in a later window does not sweep the store, the scheduled eviction does
+        clock.addAndGet(Duration.ofHours(1).toMillis());
+        pod.enforceRateLimit("client");
+        assertEquals(2, store.trackedCounters());
+
+        pod.evictExpiredLeases();
+        assertEquals(1, store.trackedCounters());
+    }
+}
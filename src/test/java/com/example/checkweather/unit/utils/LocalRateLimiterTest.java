@@ -0,0 +1,181 @@
+package utils;
+
+import com.example.checkweather.configuration.RateLimitConfig;
+import com.example.checkweather.exception.RateLimitExceededException;
+import com.example.checkweather.utils.LocalRateLimiter;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+    private RateLimitConfig rateLimitConfig;
+    private LocalRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        rateLimitConfig = new RateLimitConfig();
+        rateLimitConfig.setLimit(5);
+        rateLimitConfig.setPeriod(Duration.ofHours(1));
+        rateLimiter = new LocalRateLimiter(rateLimitConfig, clock::get);
+    }
+
+    @Test
+    void enforceRateLimit_WithinLimit_ShouldNotThrowException() {
+        String clientApiKey = "testClient";
+
+        // Make 5 requests within limit, no exception should be thrown
+        for (int i = 0; i < 5; i++) {
+            assertDoesNotThrow(() -> rateLimiter.enforceRateLimit(clientApiKey));
+        }
+    }
+
+    @Test
+    void enforceRateLimit_ShouldReturnRemainingRequests() {
+        String clientApiKey = "testClient";
+
+        assertEquals(4, rateLimiter.enforceRateLimit(clientApiKey));
+        assertEquals(3, rateLimiter.enforceRateLimit(clientApiKey));
+    }
+
+    @Test
+    void enforceRateLimit_ExceedLimit_ShouldThrowRateLimitExceededExceptionWithRetryAfter() {
+        String clientApiKey = "testClient";
+
+        // Make 5 requests within limit
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.enforceRateLimit(clientApiKey);
+        }
+
+        // Sixth request should exceed the limit and tell the client when the next token is available
+        RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+                () -> rateLimiter.enforceRateLimit(clientApiKey));
+        assertEquals(Duration.ofMinutes(12), exception.getRetryAfter());
+    }
+
+    @Test
+    void enforceRateLimit_AfterPeriod_ShouldAllowRequests() {
+        String clientApiKey = "testClient";
+
+        // Make 5 requests within limit
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.enforceRateLimit(clientApiKey);
+        }
+
+        // One token is refilled every 12 minutes
+        clock.addAndGet(Duration.ofMinutes(12).toNanos());
+        assertDoesNotThrow(() -> rateLimiter.enforceRateLimit(clientApiKey));
+        assertThrows(RateLimitExceededException.class, () -> rateLimiter.enforceRateLimit(clientApiKey));
+
+        // After a full period the bucket is full again
+        clock.addAndGet(Duration.ofHours(1).toNanos());
+        for (int i = 0; i < 5; i++) {
+            assertDoesNotThrow(() -> rateLimiter.enforceRateLimit(clientApiKey));
+        }
+    }
+
+    @Test
+    void enforceRateLimit_WithPlan_ShouldApplyPlanLimit() {
+        rateLimitConfig.setPlans(Map.of("premium", new RateLimitConfig.Plan(10, Duration.ofHours(1))));
+        rateLimitConfig.setKeyPlans(Map.of("premiumClient", "premium"));
+
+        for (int i = 0; i < 10; i++) {
+            assertDoesNotThrow(() -> rateLimiter.enforceRateLimit("premiumClient"));
+        }
+        assertThrows(RateLimitExceededException.class, () -> rateLimiter.enforceRateLimit("premiumClient"));
+    }
+
+    @Test
+    void evictIdleBuckets_ShouldOnlyDropFullyRefilledBuckets() {
+        rateLimiter.enforceRateLimit("idleClient");
+        clock.addAndGet(Duration.ofMinutes(30).toNanos());
+        rateLimiter.enforceRateLimit("activeClient");
+
+        rateLimiter.evictIdleBuckets();
+
+        assertEquals(1, rateLimiter.trackedKeys());
+    }
+
+    @Test
+    void enforceRateLimit_WhenBucketIsEvictedMidRequest_ShouldChargeTheNewBucket() {
+        AtomicBoolean evictOnNextTick = new AtomicBoolean();
+        AtomicReference<LocalRateLimiter> limiter = new AtomicReference<>();
+        limiter.set(new LocalRateLimiter(rateLimitConfig, () -> {
+            // Runs the sweep between the request's bucket lookup and its charge
+            if (evictOnNextTick.compareAndSet(true, false)) {
+                limiter.get().evictIdleBuckets();
+            }
+            return clock.get();
+        }));
+        limiter.get().enforceRateLimit("client");
+        clock.addAndGet(Duration.ofHours(1).toNanos());
+
+        evictOnNextTick.set(true);
+        assertEquals(4, limiter.get().enforceRateLimit("client"));
+
+        // The charge landed on the bucket that is in the map, not on the evicted one
+        assertEquals(1, limiter.get().trackedKeys());
+        assertEquals(3, limiter.get().enforceRateLimit("client"));
+    }
+
+    @Test
+    void rateLimitConfig_WithNonPositiveLimit_ShouldFailValidation() {
+        rateLimitConfig.setLimit(0);
+        rateLimitConfig.getPlans().put("premium", new RateLimitConfig.Plan(100, Duration.ofHours(1)));
+        rateLimitConfig.getPlans().put("broken", new RateLimitConfig.Plan(-1, Duration.ofHours(1)));
+
+        try (ValidatorFactory validatorFactory = Validation.buildDefaultValidatorFactory()) {
+            Set<String> invalid = validatorFactory.getValidator().validate(rateLimitConfig).stream()
+                    .map(ConstraintViolation::getPropertyPath)
+                    .map(Object::toString)
+                    .collect(Collectors.toSet());
+
+            assertEquals(Set.of("limit", "plans[broken].limit"), invalid);
+        }
+    }
+
+    @Test
+    void enforceRateLimit_UnderContention_ShouldAdmitExactlyTheLimit() throws InterruptedException {
+        LocalRateLimiter realClockLimiter = new LocalRateLimiter(rateLimitConfig);
+        int threads = 8;
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (int i = 0; i < threads * 10; i++) {
+            executor.submit(() -> {
+                start.await();
+                try {
+                    realClockLimiter.enforceRateLimit("sharedClient");
+                    admitted.incrementAndGet();
+                } catch (RateLimitExceededException ignored) {
+                    // expected once the bucket is empty
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(5, admitted.get());
+    }
+}
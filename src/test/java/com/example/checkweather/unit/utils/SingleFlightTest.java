@@ -0,0 +1,89 @@
+package utils;
+
+import com.example.checkweather.utils.SingleFlight;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>(Duration.ofSeconds(5));
+
+    @Test
+    void execute_ConcurrentCallsForSameKey_ShouldShareOneSubscription() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        Sinks.One<String> upstream = Sinks.one();
+        Mono<String> call = upstream.asMono().doOnSubscribe(s -> subscriptions.incrementAndGet());
+
+        Mono<String> first = singleFlight.execute("london,gb", () -> call);
+        Mono<String> second = singleFlight.execute("london,gb", () -> call);
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> upstream.tryEmitValue("light rain"))
+                .assertNext(results -> {
+                    assertEquals("light rain", results.getT1());
+                    assertEquals("light rain", results.getT2());
+                })
+                .verifyComplete();
+
+        assertEquals(1, subscriptions.get());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void execute_WhenCallFails_ShouldPropagateErrorToAllWaitersAndAllowRetry() {
+        Sinks.One<String> upstream = Sinks.one();
+
+        Mono<String> first = singleFlight.execute("london,gb", upstream::asMono);
+        Mono<String> second = singleFlight.execute("london,gb", upstream::asMono);
+
+        StepVerifier.create(Mono.zipDelayError(first.onErrorReturn("failed"), second.onErrorReturn("failed")))
+                .then(() -> upstream.tryEmitError(new IllegalStateException("upstream down")))
+                .assertNext(results -> {
+                    assertEquals("failed", results.getT1());
+                    assertEquals("failed", results.getT2());
+                })
+                .verifyComplete();
+
+        StepVerifier.create(singleFlight.execute("london,gb", () -> Mono.just("sunny")))
+                .expectNext("sunny")
+                .verifyComplete();
+    }
+
+    @Test
+    void execute_WhenOneWaiterCancels_ShouldNotCancelSharedCall() {
+        AtomicInteger cancellations = new AtomicInteger();
+        Sinks.One<String> upstream = Sinks.one();
+        Mono<String> call = upstream.asMono().doOnCancel(cancellations::incrementAndGet);
+
+        Disposable dropped = singleFlight.execute("london,gb", () -> call).subscribe();
+        Mono<String> remaining = singleFlight.execute("london,gb", () -> call);
+        dropped.dispose();
+
+        StepVerifier.create(remaining)
+                .then(() -> upstream.tryEmitValue("light rain"))
+                .expectNext("light rain")
+                .verifyComplete();
+
+        assertEquals(0, cancellations.get());
+    }
+
+    @Test
+    void execute_WhenCallNeverCompletes_ShouldTimeOut() {
+        SingleFlight<String, String> bounded = new SingleFlight<>(Duration.ofMillis(50));
+
+        StepVerifier.create(bounded.execute("london,gb", Mono::never))
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(0, bounded.inFlightCount());
+    }
+}
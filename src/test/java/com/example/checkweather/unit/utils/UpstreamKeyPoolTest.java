@@ -0,0 +1,94 @@
+package utils;
+
+import com.example.checkweather.configuration.UpstreamKeyConfig;
+import com.example.checkweather.exception.UpstreamUnavailableException;
+import com.example.checkweather.utils.UpstreamKeyPool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamKeyPoolTest {
+
+    private final AtomicLong clock = new AtomicLong(Duration.ofDays(1).toMillis());
+    private UpstreamKeyConfig upstreamKeyConfig;
+    private UpstreamKeyPool upstreamKeyPool;
+
+    @BeforeEach
+    void setUp() {
+        upstreamKeyConfig = new UpstreamKeyConfig();
+        upstreamKeyConfig.setKeys(List.of("key-aaaa", "key-bbbb"));
+        upstreamKeyConfig.setQuotaPerKey(3);
+        upstreamKeyConfig.setQuotaPeriod(Duration.ofMinutes(1));
+        upstreamKeyConfig.setQuarantineBase(Duration.ofSeconds(30));
+        upstreamKeyConfig.setQuarantineMax(Duration.ofMinutes(2));
+        upstreamKeyPool = new UpstreamKeyPool(upstreamKeyConfig, clock::get);
+    }
+
+    @Test
+    void acquire_ShouldSpreadCallsAcrossKeysByRemainingQuota() {
+        Map<String, Integer> calls = new HashMap<>();
+        for (int i = 0; i < 6; i++) {
+            calls.merge(upstreamKeyPool.acquire(), 1, Integer::sum);
+        }
+
+        assertEquals(Map.of("key-aaaa", 3, "key-bbbb", 3), calls);
+        assertThrows(UpstreamUnavailableException.class, () -> upstreamKeyPool.acquire());
+    }
+
+    @Test
+    void acquire_AfterQuotaPeriod_ShouldRestoreQuota() {
+        for (int i = 0; i < 6; i++) {
+            upstreamKeyPool.acquire();
+        }
+
+        clock.addAndGet(Duration.ofMinutes(1).toMillis());
+
+        assertDoesNotThrow(() -> upstreamKeyPool.acquire());
+    }
+
+    @Test
+    void reportRejected_ShouldQuarantineKeyWithExponentialBackoff() {
+        upstreamKeyPool.reportRejected("key-aaaa", 429);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("key-bbbb", upstreamKeyPool.acquire());
+        }
+
+        // Back after the first 30 second quarantine
+        clock.addAndGet(Duration.ofSeconds(31).toMillis());
+        assertEquals("key-aaaa", upstreamKeyPool.acquire());
+
+        // A second consecutive rejection doubles the quarantine
+        upstreamKeyPool.reportRejected("key-aaaa", 401);
+        assertEquals(60_000, upstreamKeyPool.usage().get("****aaaa").getQuarantinedForMillis());
+
+        // A success resets the backoff
+        upstreamKeyPool.reportSuccess("key-aaaa");
+        upstreamKeyPool.reportRejected("key-aaaa", 429);
+        assertEquals(30_000, upstreamKeyPool.usage().get("****aaaa").getQuarantinedForMillis());
+    }
+
+    @Test
+    void usage_ShouldExposeMaskedCounters() {
+        upstreamKeyPool.acquire();
+        upstreamKeyPool.reportRejected("key-bbbb", 429);
+
+        Map<String, UpstreamKeyPool.KeyUsage> usage = upstreamKeyPool.usage();
+
+        assertEquals(2, usage.size());
+        assertEquals(1, usage.get("****aaaa").getTotalCalls() + usage.get("****bbbb").getTotalCalls());
+        assertEquals(1, usage.get("****bbbb").getRejections());
+        assertEquals(0, usage.get("****bbbb").getRemainingQuota());
+    }
+
+    @Test
+    void isEnabled_WithoutKeys_ShouldBeFalse() {
+        assertFalse(new UpstreamKeyPool(new UpstreamKeyConfig()).isEnabled());
+    }
+}